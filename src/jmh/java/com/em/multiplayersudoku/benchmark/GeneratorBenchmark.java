@@ -0,0 +1,76 @@
+package com.em.multiplayersudoku.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.em.multiplayersudoku.SudokuGenerator;
+import com.em.multiplayersudoku.domain.Difficulty;
+
+/**
+ * Puzzle generation steps per difficulty. The generator is seeded so every run
+ * and every commit sees the same sequence of boards.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class GeneratorBenchmark {
+    private static final int N = SudokuGenerator.GRID_SIZE;
+
+    @Param({ "EASY", "MEDIUM", "HARD", "EXPERT" })
+    private Difficulty difficulty;
+
+    private SudokuGenerator generator;
+    private int[][] solution;
+    private int[][] puzzle;
+    private int[][] scratch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        generator = new SudokuGenerator(42);
+        solution = new int[N][N];
+        generator.fillBoard(solution);
+        puzzle = generator.copyBoard(solution);
+        generator.removeNumbers(puzzle, difficulty.getMinClues());
+        scratch = new int[N][N];
+    }
+
+    @Setup(Level.Invocation)
+    public void resetScratch() {
+        // removeNumbers works in place; start every call from the full solution
+        for (int row = 0; row < N; row++)
+            System.arraycopy(solution[row], 0, scratch[row], 0, N);
+    }
+
+    @Benchmark
+    public int[][] fillBoard() {
+        int[][] board = new int[N][N];
+        generator.fillBoard(board);
+        return board;
+    }
+
+    @Benchmark
+    public int[][] removeNumbers() {
+        generator.removeNumbers(scratch, difficulty.getMinClues());
+        return scratch;
+    }
+
+    @Benchmark
+    public int countSolutions() {
+        return generator.countSolutions(puzzle, 1);
+    }
+}
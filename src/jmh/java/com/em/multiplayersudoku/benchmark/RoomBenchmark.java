@@ -0,0 +1,83 @@
+package com.em.multiplayersudoku.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.em.multiplayersudoku.SudokuGenerator;
+import com.em.multiplayersudoku.domain.Difficulty;
+import com.em.multiplayersudoku.domain.PlayerSlot;
+import com.em.multiplayersudoku.domain.Puzzle;
+import com.em.multiplayersudoku.domain.Room;
+
+/**
+ * The per-action room path: applying a FILL and the progress checks that
+ * follow it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class RoomBenchmark {
+    private static final int N = SudokuGenerator.GRID_SIZE;
+
+    private Room room;
+    private PlayerSlot player;
+    private Puzzle puzzle;
+    private int[] emptyCells;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        puzzle = new SudokuGenerator(42).generate(Difficulty.MEDIUM.getMinClues());
+        room = new Room("BENCH1", Difficulty.MEDIUM, 5, 10);
+        room.addPlayer("player-1");
+        room.addPlayer("player-2");
+        room.start(() -> puzzle);
+        player = room.getPlayer("player-1");
+        int count = 0;
+        int[] cells = new int[N * N];
+        for (int i = 0; i < N * N; i++) {
+            if (puzzle.getGiven(i / N, i % N) == 0)
+                cells[count++] = i;
+        }
+        emptyCells = Arrays.copyOf(cells, count);
+    }
+
+    /**
+     * Walks the empty cells, alternately placing the solution and clearing it, so
+     * the board never fills up.
+     */
+    @Benchmark
+    public void updateCellForPlayer() {
+        int step = next++;
+        int cell = emptyCells[(step >>> 1) % emptyCells.length];
+        int row = cell / N;
+        int col = cell % N;
+        int value = ((step & 1) == 0) ? puzzle.getSolution(row, col) : 0;
+        room.updateCellForPlayer(player, row, col, value);
+    }
+
+    @Benchmark
+    public int getFilledCellCount() {
+        return player.getFilledCellCount();
+    }
+
+    @Benchmark
+    public boolean isPlayerBoardComplete() {
+        return room.isPlayerBoardComplete(player);
+    }
+}
@@ -0,0 +1,111 @@
+package com.em.multiplayersudoku.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.em.multiplayersudoku.BoardsListMessage;
+import com.em.multiplayersudoku.CompactBoard;
+import com.em.multiplayersudoku.SudokuGenerator;
+import com.em.multiplayersudoku.domain.Difficulty;
+import com.em.multiplayersudoku.domain.PlayerBoard;
+import com.em.multiplayersudoku.domain.PlayerSlot;
+import com.em.multiplayersudoku.domain.Puzzle;
+import com.em.multiplayersudoku.domain.Room;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Jackson serialization of a two-player {@link BoardsListMessage} snapshot, in
+ * the JSON board encoding and the compact one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private BoardsListMessage jsonSnapshot;
+    private BoardsListMessage compactSnapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Puzzle puzzle = new SudokuGenerator(42).generate(Difficulty.MEDIUM.getMinClues());
+        Room room = new Room("BENCH1", Difficulty.MEDIUM, 5, 10);
+        room.addPlayer("player-1");
+        room.addPlayer("player-2");
+        room.start(() -> puzzle);
+        // a game in progress: some correct and some wrong guesses on each board
+        PlayerSlot first = room.getPlayer("player-1");
+        PlayerSlot second = room.getPlayer("player-2");
+        int filled = 0;
+        for (int i = 0; i < 81 && filled < 20; i++) {
+            int row = i / 9;
+            int col = i % 9;
+            if (puzzle.getGiven(row, col) != 0)
+                continue;
+            room.updateCellForPlayer(first, row, col, puzzle.getSolution(row, col));
+            room.updateCellForPlayer(second, row, col, (filled % 4 == 0) ? puzzle.getSolution(row, col) % 9 + 1
+                    : puzzle.getSolution(row, col));
+            filled++;
+        }
+        room.setCellCooldown(second, 0, 0);
+        jsonSnapshot = snapshot(room, false);
+        compactSnapshot = snapshot(room, true);
+    }
+
+    // Same shape RoomBroadcaster builds
+    private static BoardsListMessage snapshot(Room room, boolean compact) {
+        Map<String, PlayerBoard> boards = new HashMap<>();
+        Map<String, CompactBoard> compactBoards = new HashMap<>();
+        Map<String, Integer> filledCounts = new HashMap<>();
+        Map<String, Integer> stepsAhead = new HashMap<>();
+        Map<String, Boolean> canRemove = new HashMap<>();
+        Map<String, Long> removeCooldowns = new HashMap<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < room.getMaxPlayers(); i++) {
+            PlayerSlot player = room.getSlot(i);
+            boards.put(player.getSessionId(), player.getBoard());
+            compactBoards.put(player.getSessionId(), CompactBoard.encode(player.getBoard(), now));
+            filledCounts.put(player.getSessionId(), player.getFilledCellCount());
+            stepsAhead.put(player.getSessionId(), 0);
+            canRemove.put(player.getSessionId(), room.canRemoveOpponentCell(player));
+            removeCooldowns.put(player.getSessionId(), room.getRemoveCooldownUntil(player));
+        }
+        BoardsListMessage message = new BoardsListMessage(compact ? null : boards, room.getPlayerCount(),
+                filledCounts, stepsAhead);
+        message.setSeq(1);
+        message.setCompactBoards(compact ? compactBoards : null);
+        message.setCanRemoveOpponentCellMap(canRemove);
+        message.setRemoveCooldownUntilMap(removeCooldowns);
+        message.setMaxStepGap(room.getRemoveThreshold());
+        message.setCooldownSeconds(room.getCooldownSeconds());
+        message.setDifficulty(room.getDifficulty().name());
+        return message;
+    }
+
+    @Benchmark
+    public byte[] snapshotJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(jsonSnapshot);
+    }
+
+    @Benchmark
+    public byte[] snapshotCompact() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(compactSnapshot);
+    }
+}
@@ -0,0 +1,216 @@
+package com.em.multiplayersudoku;
+
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.em.multiplayersudoku.domain.GameAction.ActionType;
+import com.em.multiplayersudoku.domain.RoomOperation;
+
+/**
+ * Fixed-size ring of the most recent room operations across all rooms, kept in
+ * place of per-action log lines. Recording packs an entry into four longs with
+ * no lock, allocation or string formatting; old entries are overwritten. Read
+ * through the {@code flightrecorder} actuator endpoint.
+ * <p>
+ * Each slot is guarded by its sequence word, as in a seqlock: the writer marks
+ * it in progress, fences, writes the payload and then releases the new
+ * sequence. A reader keeps an entry only if the word holds the expected
+ * sequence before and after reading it, so entries overwritten mid-read are
+ * skipped.
+ */
+@Component
+public class ActionFlightRecorder {
+    public enum Outcome {
+        APPLIED, // changed the room
+        IGNORED, // nothing to do, e.g. a start while running or a REMOVE on a board not far enough ahead
+        NOT_SEATED, // sender has no seat in the room
+        NOT_RUNNING, // game not running
+        COOLDOWN, // cell or REMOVE still cooling down
+        WON, // this action finished the game
+        INVALID // cell or value outside the board
+    }
+
+    private static final int WORDS = 4; // sequence, epoch millis, packed fields, session hash + duration
+    private static final RoomOperation.Type[] OPERATIONS = RoomOperation.Type.values();
+    private static final ActionType[] ACTIONS = ActionType.values();
+    private static final Outcome[] OUTCOMES = Outcome.values();
+    private static final int NONE_ACTION = 7;
+    private static final int NONE_SEAT = 31;
+
+    private final int mask;
+    private final AtomicLongArray slots;
+    private final AtomicLong cursor = new AtomicLong();
+
+    public ActionFlightRecorder(@Value("${sudoku.flight-recorder.capacity:65536}") int capacity) {
+        // rounded up to a power of two; 0 turns recording off
+        int size = (capacity <= 0) ? 0 : Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new AtomicLongArray(size * WORDS);
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Records a room action. {@code seat} is -1 for a sender without a seat;
+     * row, col and value keep their low four bits only.
+     */
+    public void recordAction(String roomCode, ActionType action, int seat, int row, int col, int value,
+            Outcome outcome, String sessionId, long durationNanos) {
+        long fields = RoomCodeAllocator.toBits(roomCode) & 0x3FFFFFFFL
+                | (long) RoomOperation.Type.ACTION.ordinal() << 30
+                | (long) (action != null ? action.ordinal() : NONE_ACTION) << 33
+                | (long) (seat >= 0 ? seat : NONE_SEAT) << 36
+                | (long) (row & 0xF) << 41
+                | (long) (col & 0xF) << 45
+                | (long) (value & 0xF) << 49
+                | (long) outcome.ordinal() << 53;
+        write(fields, sessionId, durationNanos);
+    }
+
+    /**
+     * Records any other room operation (start, join, leave, ...).
+     */
+    public void record(RoomOperation.Type operation, String roomCode, int seat, Outcome outcome, String sessionId,
+            long durationNanos) {
+        long fields = RoomCodeAllocator.toBits(roomCode) & 0x3FFFFFFFL
+                | (long) operation.ordinal() << 30
+                | (long) NONE_ACTION << 33
+                | (long) (seat >= 0 ? seat : NONE_SEAT) << 36
+                | (long) outcome.ordinal() << 53;
+        write(fields, sessionId, durationNanos);
+    }
+
+    private void write(long fields, String sessionId, long durationNanos) {
+        if (mask < 0)
+            return;
+        long sequence = cursor.getAndIncrement();
+        int base = (int) (sequence & mask) * WORDS;
+        long micros = Math.min(durationNanos / 1000, 0xFFFFFFFFL);
+        slots.setOpaque(base, -1); // in progress
+        VarHandle.releaseFence(); // the marker is visible before any of the new payload
+        slots.setOpaque(base + 1, System.currentTimeMillis());
+        slots.setOpaque(base + 2, fields);
+        slots.setOpaque(base + 3, (long) (sessionId != null ? sessionId.hashCode() : 0) << 32 | micros);
+        slots.setRelease(base, sequence);
+    }
+
+    /**
+     * Most recent entries first, at most {@code limit}, optionally for one room.
+     * A room code that is not a valid code matches nothing.
+     */
+    public List<Entry> dump(String roomCode, int limit) {
+        List<Entry> entries = new ArrayList<>();
+        long room = (roomCode != null) ? RoomCodeAllocator.toBits(roomCode) : -1;
+        if (mask < 0 || (roomCode != null && room < 0))
+            return entries;
+        long newest = cursor.get() - 1;
+        long oldest = Math.max(0, newest - mask);
+        for (long sequence = newest; sequence >= oldest && entries.size() < limit; sequence--) {
+            int base = (int) (sequence & mask) * WORDS;
+            if (slots.getAcquire(base) != sequence)
+                continue;
+            long time = slots.getOpaque(base + 1);
+            long fields = slots.getOpaque(base + 2);
+            long session = slots.getOpaque(base + 3);
+            VarHandle.acquireFence();
+            if (slots.getOpaque(base) != sequence)
+                continue; // overwritten while reading
+            if (room >= 0 && (fields & 0x3FFFFFFFL) != room)
+                continue;
+            entries.add(new Entry(sequence, time, fields, session));
+        }
+        return entries;
+    }
+
+    /**
+     * One decoded entry, as returned by the actuator endpoint.
+     */
+    public static class Entry {
+        private final long sequence;
+        private final Instant time;
+        private final String room;
+        private final RoomOperation.Type operation;
+        private final ActionType action;
+        private final Integer seat;
+        private final int row;
+        private final int col;
+        private final int value;
+        private final Outcome outcome;
+        private final String session; // hash of the session id, as hex
+        private final long durationMicros;
+
+        Entry(long sequence, long time, long fields, long session) {
+            this.sequence = sequence;
+            this.time = Instant.ofEpochMilli(time);
+            this.room = RoomCodeAllocator.fromBits(fields & 0x3FFFFFFFL);
+            this.operation = OPERATIONS[(int) (fields >>> 30) & 0x7];
+            int action = (int) (fields >>> 33) & 0x7;
+            this.action = (action < ACTIONS.length) ? ACTIONS[action] : null;
+            int seat = (int) (fields >>> 36) & 0x1F;
+            this.seat = (seat != NONE_SEAT) ? seat : null;
+            this.row = (int) (fields >>> 41) & 0xF;
+            this.col = (int) (fields >>> 45) & 0xF;
+            this.value = (int) (fields >>> 49) & 0xF;
+            this.outcome = OUTCOMES[(int) (fields >>> 53) & 0x7];
+            this.session = Integer.toHexString((int) (session >>> 32));
+            this.durationMicros = session & 0xFFFFFFFFL;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public Instant getTime() {
+            return time;
+        }
+
+        public String getRoom() {
+            return room;
+        }
+
+        public RoomOperation.Type getOperation() {
+            return operation;
+        }
+
+        public ActionType getAction() {
+            return action;
+        }
+
+        public Integer getSeat() {
+            return seat;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public int getCol() {
+            return col;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        public String getSession() {
+            return session;
+        }
+
+        public long getDurationMicros() {
+            return durationMicros;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.em.multiplayersudoku;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental room update sent after FILL/REMOVE instead of a full
+ * {@link BoardsListMessage}. {@code seq} increases by one per room broadcast;
+ * a client that sees a gap asks for a snapshot on /app/room/{code}/snapshot.
+ * <p>
+ * Only the players whose counts changed are listed. Steps ahead is
+ * {@code filledCount - maxFilled}; REMOVE on the opponent is available when the
+ * opponent leads by at least {@code maxStepGap} and the cooldown has passed.
+ */
+public class BoardDeltaMessage {
+    private final String type = "DELTA";
+    private long seq;
+    private List<CellChange> cells;
+    private Map<String, Integer> filledCounts; // sessionId -> filled cell count, changed players only
+    private int maxFilled;
+    private Map<String, Long> removeCooldownUntilMap; // sessionId -> epoch millis, changed players only
+
+    public BoardDeltaMessage(long seq, List<CellChange> cells, Map<String, Integer> filledCounts, int maxFilled) {
+        this.seq = seq;
+        this.cells = cells;
+        this.filledCounts = filledCounts;
+        this.maxFilled = maxFilled;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public List<CellChange> getCells() {
+        return cells;
+    }
+
+    public void setCells(List<CellChange> cells) {
+        this.cells = cells;
+    }
+
+    public Map<String, Integer> getFilledCounts() {
+        return filledCounts;
+    }
+
+    public void setFilledCounts(Map<String, Integer> filledCounts) {
+        this.filledCounts = filledCounts;
+    }
+
+    public int getMaxFilled() {
+        return maxFilled;
+    }
+
+    public void setMaxFilled(int maxFilled) {
+        this.maxFilled = maxFilled;
+    }
+
+    public Map<String, Long> getRemoveCooldownUntilMap() {
+        return removeCooldownUntilMap;
+    }
+
+    public void setRemoveCooldownUntilMap(Map<String, Long> map) {
+        this.removeCooldownUntilMap = map;
+    }
+
+    /**
+     * New contents of one cell on one player's board.
+     */
+    public static class CellChange {
+        private String sessionId; // board owner
+        private int row;
+        private int col;
+        private int value;
+        private CellStatus status;
+        private long cooldownUntil; // epoch millis
+
+        public CellChange(String sessionId, int row, int col, int value, CellStatus status, long cooldownUntil) {
+            this.sessionId = sessionId;
+            this.row = row;
+            this.col = col;
+            this.value = value;
+            this.status = status;
+            this.cooldownUntil = cooldownUntil;
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public int getCol() {
+            return col;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public CellStatus getStatus() {
+            return status;
+        }
+
+        public long getCooldownUntil() {
+            return cooldownUntil;
+        }
+    }
+}
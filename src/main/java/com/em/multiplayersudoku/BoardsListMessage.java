@@ -2,11 +2,21 @@ package com.em.multiplayersudoku;
 
 import java.util.Map;
 
+import com.em.multiplayersudoku.domain.PlayerBoard;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class BoardsListMessage {
-    private Map<String, Cell[][]> boards; // sessionId -> board
+    private long seq; // room broadcast sequence this snapshot reflects
+    @JsonSerialize(contentUsing = PlayerBoardJsonSerializer.class)
+    private Map<String, PlayerBoard> boards; // sessionId -> board
+    private Map<String, CompactBoard> compactBoards; // sessionId -> board, compact subscribers only
     private int playerCount;
+    private int maxPlayers; // seats in the room
     private Map<String, Integer> filledCounts; // sessionId -> filled cell count
-    private Map<String, Integer> stepsAhead; // sessionId -> steps ahead (difference to each other)
+    private Map<String, Integer> stepsAhead; // sessionId -> filled count minus the leader's (0 for the leader)
+    private Map<String, Integer> ranks; // sessionId -> place, 1 for the leader; ties share a place
     private boolean canRemoveOpponentCell;
     private long removeCooldownUntil; // epoch millis, 0 if available
     private Map<String, Boolean> canRemoveOpponentCellMap;
@@ -15,7 +25,7 @@ public class BoardsListMessage {
     private int cooldownSeconds;
     private String difficulty;
 
-    public BoardsListMessage(Map<String, Cell[][]> boards, int playerCount, Map<String, Integer> filledCounts,
+    public BoardsListMessage(Map<String, PlayerBoard> boards, int playerCount, Map<String, Integer> filledCounts,
             Map<String, Integer> stepsAhead) {
         this.boards = boards;
         this.playerCount = playerCount;
@@ -23,14 +33,30 @@ public class BoardsListMessage {
         this.stepsAhead = stepsAhead;
     }
 
-    public Map<String, Cell[][]> getBoards() {
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public Map<String, PlayerBoard> getBoards() {
         return boards;
     }
 
-    public void setBoards(Map<String, Cell[][]> boards) {
+    public void setBoards(Map<String, PlayerBoard> boards) {
         this.boards = boards;
     }
 
+    public Map<String, CompactBoard> getCompactBoards() {
+        return compactBoards;
+    }
+
+    public void setCompactBoards(Map<String, CompactBoard> compactBoards) {
+        this.compactBoards = compactBoards;
+    }
+
     public int getPlayerCount() {
         return playerCount;
     }
@@ -39,6 +65,14 @@ public class BoardsListMessage {
         this.playerCount = playerCount;
     }
 
+    public int getMaxPlayers() {
+        return maxPlayers;
+    }
+
+    public void setMaxPlayers(int maxPlayers) {
+        this.maxPlayers = maxPlayers;
+    }
+
     public Map<String, Integer> getFilledCounts() {
         return filledCounts;
     }
@@ -55,6 +89,14 @@ public class BoardsListMessage {
         this.stepsAhead = stepsAhead;
     }
 
+    public Map<String, Integer> getRanks() {
+        return ranks;
+    }
+
+    public void setRanks(Map<String, Integer> ranks) {
+        this.ranks = ranks;
+    }
+
     public boolean isCanRemoveOpponentCell() {
         return canRemoveOpponentCell;
     }
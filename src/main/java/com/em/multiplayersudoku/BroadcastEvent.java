@@ -0,0 +1,33 @@
+package com.em.multiplayersudoku;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one room frame handed to the broker: serialization plus the
+ * broker's fan-out to the topic's sessions.
+ */
+@Name("com.em.multiplayersudoku.Broadcast")
+@Label("Room Broadcast")
+@Category("Multiplayer Sudoku")
+@StackTrace(false)
+public class BroadcastEvent extends jdk.jfr.Event {
+    @Label("Room")
+    String room;
+
+    @Label("Destination")
+    String destination;
+
+    @Label("Message Type")
+    String messageType;
+
+    @Label("Payload Size")
+    @DataAmount
+    long payloadSize;
+
+    @Label("Subscribers")
+    int subscribers;
+}
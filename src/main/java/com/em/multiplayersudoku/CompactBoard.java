@@ -0,0 +1,35 @@
+package com.em.multiplayersudoku;
+
+import com.em.multiplayersudoku.domain.PlayerBoard;
+
+/**
+ * Compact wire form of one player's board, sent to clients subscribed to
+ * /topic/room/{code}/compact instead of a {@code Cell[][]}.
+ * <p>
+ * {@code cells} holds one byte per cell in row-major order: the value (0-9) in
+ * the high nibble and the {@link CellStatus} ordinal in the low nibble, the same
+ * layout {@link PlayerBoard} keeps in memory. Jackson writes it as a base64
+ * string. {@code cooldowns} lists only cells whose cooldown is still running,
+ * as flat {@code [cellIndex, untilEpochMillis, ...]} pairs.
+ */
+public class CompactBoard {
+    private final byte[] cells;
+    private final long[] cooldowns;
+
+    public CompactBoard(byte[] cells, long[] cooldowns) {
+        this.cells = cells;
+        this.cooldowns = cooldowns;
+    }
+
+    public static CompactBoard encode(PlayerBoard board, long now) {
+        return new CompactBoard(board.copyPackedCells(), board.activeCooldowns(now));
+    }
+
+    public byte[] getCells() {
+        return cells;
+    }
+
+    public long[] getCooldowns() {
+        return cooldowns;
+    }
+}
@@ -0,0 +1,47 @@
+package com.em.multiplayersudoku;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+/**
+ * Hands the STOMP handler a {@link ConflatingWebSocketSession} in place of each
+ * raw session, so every outbound frame goes through the conflating queue.
+ */
+public class ConflatingHandlerDecorator extends WebSocketHandlerDecorator {
+    private final Executor sender;
+    private final long sendTimeLimitMillis;
+    private final int bufferSizeLimit;
+    private final GameMetrics gameMetrics;
+    private final Map<String, ConflatingWebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    public ConflatingHandlerDecorator(WebSocketHandler delegate, Executor sender, long sendTimeLimitMillis,
+            int bufferSizeLimit, GameMetrics gameMetrics) {
+        super(delegate);
+        this.sender = sender;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.gameMetrics = gameMetrics;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        ConflatingWebSocketSession conflating = new ConflatingWebSocketSession(session, sender, sendTimeLimitMillis,
+                bufferSizeLimit, gameMetrics);
+        sessions.put(session.getId(), conflating);
+        super.afterConnectionEstablished(conflating);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+        ConflatingWebSocketSession conflating = sessions.remove(session.getId());
+        if (conflating != null)
+            conflating.discard();
+        super.afterConnectionClosed(session, closeStatus);
+    }
+}
@@ -0,0 +1,186 @@
+package com.em.multiplayersudoku;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+/**
+ * Per-session outbound queue that never blocks the caller and keeps only what a
+ * slow client still needs. Frames are written by a sender task, one at a time.
+ * When a room snapshot is queued, older snapshots and deltas for the same
+ * destination that are still waiting are dropped: the snapshot already carries
+ * their state. Frames are tagged by {@link RoomBroadcaster} with the
+ * {@value #CONFLATE_HEADER} header; untagged frames (WIN, errors, receipts) are
+ * always delivered.
+ * <p>
+ * A session is closed once its queue holds more than the buffer limit or a
+ * single write has been stuck longer than the send time limit, so one bad
+ * connection costs bounded memory and never delays other subscribers.
+ */
+public class ConflatingWebSocketSession extends WebSocketSessionDecorator {
+    private static final Logger logger = LoggerFactory.getLogger(ConflatingWebSocketSession.class);
+
+    public static final String CONFLATE_HEADER = "x-conflate";
+    public static final String SNAPSHOT = "snapshot";
+    public static final String DELTA = "delta";
+
+    private final Executor sender;
+    private final long sendTimeLimitMillis;
+    private final int bufferSizeLimit;
+    private final GameMetrics gameMetrics;
+
+    // guarded by queue
+    private final ArrayDeque<Frame> queue = new ArrayDeque<>();
+    private int queuedBytes;
+    private boolean draining;
+
+    private volatile long writeStartedAt; // 0 while no write is in progress
+    private volatile boolean closed;
+
+    public ConflatingWebSocketSession(WebSocketSession delegate, Executor sender, long sendTimeLimitMillis,
+            int bufferSizeLimit, GameMetrics gameMetrics) {
+        super(delegate);
+        this.sender = sender;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.gameMetrics = gameMetrics;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (closed)
+            return;
+        Frame frame = Frame.of(message);
+        boolean startDrain;
+        boolean overflow;
+        synchronized (queue) {
+            if (SNAPSHOT.equals(frame.kind))
+                dropSuperseded(frame.destination);
+            queue.add(frame);
+            queuedBytes += frame.size;
+            overflow = queuedBytes > bufferSizeLimit;
+            startDrain = !draining;
+            if (startDrain)
+                draining = true;
+        }
+        long started = writeStartedAt;
+        if (overflow || (started != 0 && System.currentTimeMillis() - started > sendTimeLimitMillis)) {
+            closeSlowSession(overflow ? "buffer limit" : "send time limit");
+            return;
+        }
+        if (startDrain)
+            sender.execute(this::drain);
+    }
+
+    private void dropSuperseded(String destination) {
+        Iterator<Frame> it = queue.iterator();
+        while (it.hasNext()) {
+            Frame queued = it.next();
+            if (queued.kind != null && queued.destination.equals(destination)) {
+                it.remove();
+                queuedBytes -= queued.size;
+                gameMetrics.recordConflated();
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Frame frame;
+            synchronized (queue) {
+                frame = queue.poll();
+                if (frame == null || closed) {
+                    draining = false;
+                    return;
+                }
+                queuedBytes -= frame.size;
+            }
+            writeStartedAt = System.currentTimeMillis();
+            try {
+                getDelegate().sendMessage(frame.message);
+            } catch (IOException | RuntimeException e) {
+                logger.debug("Send failed for session {}, closing", getId(), e);
+                discard();
+                closeQuietly(CloseStatus.SESSION_NOT_RELIABLE);
+                synchronized (queue) {
+                    draining = false;
+                }
+                return;
+            } finally {
+                writeStartedAt = 0;
+            }
+        }
+    }
+
+    private void closeSlowSession(String reason) {
+        logger.warn("Closing slow session {} ({})", getId(), reason);
+        gameMetrics.recordSlowConsumerClosed();
+        discard();
+        closeQuietly(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    /**
+     * Drops everything still queued; later sends are ignored.
+     */
+    public void discard() {
+        closed = true;
+        synchronized (queue) {
+            queue.clear();
+            queuedBytes = 0;
+        }
+    }
+
+    private void closeQuietly(CloseStatus status) {
+        try {
+            getDelegate().close(status);
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Close failed for session {}", getId(), e);
+        }
+    }
+
+    private static final class Frame {
+        final WebSocketMessage<?> message;
+        final int size;
+        final String destination; // set only for tagged frames
+        final String kind; // SNAPSHOT, DELTA or null
+
+        private Frame(WebSocketMessage<?> message, String destination, String kind) {
+            this.message = message;
+            this.size = message.getPayloadLength();
+            this.destination = destination;
+            this.kind = kind;
+        }
+
+        // Reads the destination and x-conflate headers of a STOMP MESSAGE frame
+        static Frame of(WebSocketMessage<?> message) {
+            if (!(message instanceof TextMessage text) || !text.getPayload().startsWith("MESSAGE\n"))
+                return new Frame(message, null, null);
+            String payload = text.getPayload();
+            int end = payload.indexOf("\n\n");
+            String destination = null;
+            String kind = null;
+            int line = payload.indexOf('\n') + 1;
+            while (line > 0 && line < end) {
+                int next = payload.indexOf('\n', line);
+                if (payload.startsWith("destination:", line)) {
+                    destination = payload.substring(line + "destination:".length(), next);
+                } else if (payload.startsWith(CONFLATE_HEADER + ":", line)) {
+                    kind = payload.substring(line + CONFLATE_HEADER.length() + 1, next);
+                }
+                line = next + 1;
+            }
+            if (destination == null || !(SNAPSHOT.equals(kind) || DELTA.equals(kind)))
+                return new Frame(message, null, null);
+            return new Frame(message, destination, kind.equals(SNAPSHOT) ? SNAPSHOT : DELTA);
+        }
+    }
+}
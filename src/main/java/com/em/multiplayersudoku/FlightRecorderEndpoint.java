@@ -0,0 +1,28 @@
+package com.em.multiplayersudoku;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code /actuator/flightrecorder}: the most recent room operations, newest
+ * first. {@code ?room=ABCDEF} narrows to one room, {@code ?limit=} caps the
+ * number of entries (default 200).
+ */
+@Component
+@Endpoint(id = "flightrecorder")
+public class FlightRecorderEndpoint {
+    private static final int DEFAULT_LIMIT = 200;
+
+    @Autowired
+    private ActionFlightRecorder flightRecorder;
+
+    @ReadOperation
+    public List<ActionFlightRecorder.Entry> entries(@Nullable String room, @Nullable Integer limit) {
+        return flightRecorder.dump(room, (limit != null) ? limit : DEFAULT_LIMIT);
+    }
+}
@@ -0,0 +1,90 @@
+package com.em.multiplayersudoku;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.em.multiplayersudoku.domain.Difficulty;
+import com.em.multiplayersudoku.domain.GameAction.ActionType;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meters for the game hot paths. Every meter is registered up front so that
+ * recording is a map lookup and an update, with no tag building per call.
+ */
+@Component
+public class GameMetrics {
+    private final Map<ActionType, Timer> actionTimers = new EnumMap<>(ActionType.class);
+    private final Timer startTimer;
+    // [difficulty][0 = pool refill, 1 = generated for a take that found the pool empty]
+    private final Map<Difficulty, Timer[]> generationTimers = new EnumMap<>(Difficulty.class);
+    private final DistributionSummary broadcastBytes;
+    private final Counter conflatedFrames;
+    private final Counter slowConsumersClosed;
+
+    public GameMetrics(MeterRegistry registry) {
+        for (ActionType type : ActionType.values()) {
+            actionTimers.put(type, Timer.builder("sudoku.action")
+                    .description("Time from receiving a room action to finishing it on the room shard")
+                    .tag("type", type.name())
+                    .register(registry));
+        }
+        this.startTimer = Timer.builder("sudoku.game.start")
+                .description("Time from a start request to the first snapshot being sent")
+                .register(registry);
+        for (Difficulty difficulty : Difficulty.values()) {
+            generationTimers.put(difficulty, new Timer[] {
+                    generationTimer(registry, difficulty, "pool"),
+                    generationTimer(registry, difficulty, "miss") });
+        }
+        this.broadcastBytes = DistributionSummary.builder("sudoku.broadcast.payload")
+                .description("Serialized size of room broadcasts sent to the broker")
+                .baseUnit("bytes")
+                .register(registry);
+        this.conflatedFrames = Counter.builder("sudoku.outbound.conflated")
+                .description("Queued frames dropped because a newer snapshot replaced them")
+                .register(registry);
+        this.slowConsumersClosed = Counter.builder("sudoku.outbound.slow.closed")
+                .description("Sessions closed for exceeding the send time or buffer limit")
+                .register(registry);
+    }
+
+    private static Timer generationTimer(MeterRegistry registry, Difficulty difficulty, String source) {
+        return Timer.builder("sudoku.puzzle.generation")
+                .description("Time to generate one puzzle")
+                .tag("difficulty", difficulty.name())
+                .tag("source", source)
+                .register(registry);
+    }
+
+    public void recordAction(ActionType type, long nanos) {
+        if (type != null)
+            actionTimers.get(type).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordStart(long nanos) {
+        startTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordGeneration(Difficulty difficulty, boolean onMiss, long nanos) {
+        generationTimers.get(difficulty)[onMiss ? 1 : 0].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBroadcast(int bytes) {
+        broadcastBytes.record(bytes);
+    }
+
+    public void recordConflated() {
+        conflatedFrames.increment();
+    }
+
+    public void recordSlowConsumerClosed() {
+        slowConsumersClosed.increment();
+    }
+}
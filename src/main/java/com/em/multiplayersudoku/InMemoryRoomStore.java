@@ -0,0 +1,76 @@
+package com.em.multiplayersudoku;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.em.multiplayersudoku.domain.Room;
+import com.em.multiplayersudoku.domain.RoomOperation;
+
+/**
+ * Default store: this node owns every room it creates and knows no others.
+ * With several nodes behind a broker relay, clients must be routed to the node
+ * that created their room (see the node id in the create-room response).
+ */
+@Component
+@ConditionalOnProperty(name = "sudoku.room-store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryRoomStore implements RoomStore {
+    private final String nodeId;
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+
+    public InMemoryRoomStore(@Value("${sudoku.node-id:}") String nodeId) {
+        this.nodeId = nodeId.isEmpty() ? UUID.randomUUID().toString().substring(0, 8) : nodeId;
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public boolean add(Room room) {
+        return rooms.putIfAbsent(room.getCode(), room) == null;
+    }
+
+    @Override
+    public Room getLocal(String code) {
+        return rooms.get(code);
+    }
+
+    @Override
+    public String getOwner(String code) {
+        return rooms.containsKey(code) ? nodeId : null;
+    }
+
+    @Override
+    public boolean remove(Room room) {
+        return rooms.remove(room.getCode(), room);
+    }
+
+    @Override
+    public Collection<Room> getLocalRooms() {
+        return Collections.unmodifiableCollection(rooms.values());
+    }
+
+    @Override
+    public int getLocalRoomCount() {
+        return rooms.size();
+    }
+
+    @Override
+    public void setOperationHandler(Consumer<RoomOperation> handler) {
+        // nothing is ever forwarded here
+    }
+
+    @Override
+    public boolean forward(RoomOperation operation) {
+        return false;
+    }
+}
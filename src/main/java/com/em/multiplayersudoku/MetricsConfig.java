@@ -0,0 +1,90 @@
+package com.em.multiplayersudoku;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.ToDoubleFunction;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.em.multiplayersudoku.domain.Difficulty;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Gauges and counters read from existing state: rooms, seated players, the
+ * puzzle pool, room evictions and executor queue depths. Hot-path timings live
+ * in {@link GameMetrics}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder gameStateMetrics(RoomService roomService, PuzzlePool puzzlePool, RoomExecutor roomExecutor,
+            RoomJournal roomJournal,
+            @Qualifier("clientInboundChannelExecutor") Executor inboundExecutor,
+            @Qualifier("clientOutboundChannelExecutor") Executor outboundExecutor) {
+        return registry -> {
+            Gauge.builder("sudoku.rooms.active", roomService, RoomService::getRoomCount)
+                    .description("Rooms currently held in memory")
+                    .register(registry);
+            Gauge.builder("sudoku.players.seated", roomService, RoomService::getSeatedPlayerCount)
+                    .description("Sessions connected to this node that joined a room")
+                    .register(registry);
+            Gauge.builder("sudoku.spectators", roomService, RoomService::getSpectatorCount)
+                    .description("Spectators watching rooms owned by this node")
+                    .register(registry);
+            evictionCounter(registry, roomService, "idle", RoomService::getIdleEvictions);
+            evictionCounter(registry, roomService, "empty", RoomService::getEmptyEvictions);
+            evictionCounter(registry, roomService, "finished", RoomService::getFinishedEvictions);
+
+            FunctionCounter.builder("sudoku.puzzle.pool.takes", puzzlePool, PuzzlePool::getHits)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("sudoku.puzzle.pool.takes", puzzlePool, PuzzlePool::getMisses)
+                    .tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("sudoku.puzzle.pool.refills", puzzlePool, PuzzlePool::getRefills)
+                    .register(registry);
+            for (Difficulty difficulty : Difficulty.values()) {
+                Gauge.builder("sudoku.puzzle.pool.available", puzzlePool, pool -> pool.getAvailable(difficulty))
+                        .tag("difficulty", difficulty.name())
+                        .register(registry);
+            }
+
+            Gauge.builder("sudoku.executor.queued", roomExecutor, RoomExecutor::getQueuedTasks)
+                    .tag("executor", "room")
+                    .register(registry);
+            queueGauge(registry, "clientInbound", inboundExecutor);
+            queueGauge(registry, "clientOutbound", outboundExecutor);
+            Gauge.builder("sudoku.journal.pending", roomJournal, RoomJournal::getPendingRecords)
+                    .description("Room journal records waiting for the writer")
+                    .register(registry);
+        };
+    }
+
+    private static void evictionCounter(MeterRegistry registry, RoomService roomService, String reason,
+            ToDoubleFunction<RoomService> count) {
+        FunctionCounter.builder("sudoku.rooms.evicted", roomService, count)
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    private static void queueGauge(MeterRegistry registry, String name, Executor executor) {
+        if (executor instanceof ThreadPoolTaskExecutor taskExecutor) {
+            Gauge.builder("sudoku.executor.queued", taskExecutor, MetricsConfig::queueSize)
+                    .tag("executor", name)
+                    .register(registry);
+        }
+    }
+
+    private static int queueSize(ThreadPoolTaskExecutor executor) {
+        ThreadPoolExecutor pool = executor.getThreadPoolExecutor();
+        return pool.getQueue().size();
+    }
+}
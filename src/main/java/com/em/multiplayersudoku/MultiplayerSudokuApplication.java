@@ -3,9 +3,11 @@ package com.em.multiplayersudoku;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.socket.server.standard.ServerEndpointExporter;
 
 @SpringBootApplication
+@EnableScheduling
 public class MultiplayerSudokuApplication {
 
 	public static void main(String[] args) {
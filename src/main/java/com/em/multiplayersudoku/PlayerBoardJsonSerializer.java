@@ -0,0 +1,37 @@
+package com.em.multiplayersudoku;
+
+import java.io.IOException;
+
+import com.em.multiplayersudoku.domain.PlayerBoard;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Writes a packed {@link PlayerBoard} in the JSON shape clients already parse,
+ * a {@code Cell[][]} of {@code {value, status, cooldownUntil}} objects, without
+ * materializing Cell objects.
+ */
+public class PlayerBoardJsonSerializer extends StdSerializer<PlayerBoard> {
+
+    public PlayerBoardJsonSerializer() {
+        super(PlayerBoard.class);
+    }
+
+    @Override
+    public void serialize(PlayerBoard board, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartArray();
+        for (int row = 0; row < SudokuGenerator.GRID_SIZE; row++) {
+            gen.writeStartArray();
+            for (int col = 0; col < SudokuGenerator.GRID_SIZE; col++) {
+                gen.writeStartObject();
+                gen.writeNumberField("value", board.getValue(row, col));
+                gen.writeStringField("status", board.getStatus(row, col).name());
+                gen.writeNumberField("cooldownUntil", board.getCooldownUntil(row, col));
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+    }
+}
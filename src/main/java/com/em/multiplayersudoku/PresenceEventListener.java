@@ -1,69 +1,76 @@
 package com.em.multiplayersudoku;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 import org.springframework.web.socket.messaging.SessionSubscribeEvent;
 import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
 
-import com.em.multiplayersudoku.domain.Room;
+import com.em.multiplayersudoku.domain.RoomOperation;
 
 @Component
 public class PresenceEventListener {
+    // /topic/room/{code} for JSON boards, /topic/room/{code}/compact for CompactBoard
+    private static final Pattern ROOM_TOPIC = Pattern
+            .compile("/topic/room/(" + RoomCodeAllocator.CODE_REGEX + ")(/compact)?");
+    // spectators watch without taking a seat
+    private static final Pattern SPECTATE_TOPIC = Pattern
+            .compile("/topic/room/(" + RoomCodeAllocator.CODE_REGEX + ")/spectate");
 
     @Autowired
     private RoomService roomService;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private RoomGateway roomGateway;
 
     @EventListener
     public void handleSubscribe(SessionSubscribeEvent event) {
         StompHeaderAccessor sha = StompHeaderAccessor.wrap(event.getMessage());
         String dest = sha.getDestination();
-        if (dest != null && dest.matches("/topic/room/\\w{4}")) {
-            String code = dest.substring(dest.lastIndexOf('/') + 1);
-            String sessionId = sha.getSessionId();
-            roomService.addPlayerToRoom(code, sessionId);
+        if (dest == null)
+            return;
+        Matcher matcher = ROOM_TOPIC.matcher(dest);
+        if (matcher.matches()) {
+            boolean compact = matcher.group(2) != null;
+            roomGateway.dispatch(RoomOperation.join(matcher.group(1), sha.getSessionId(), compact));
+            return;
+        }
+        matcher = SPECTATE_TOPIC.matcher(dest);
+        if (matcher.matches() && roomService.roomExists(matcher.group(1))) {
+            String code = matcher.group(1);
+            roomService.trackSpectator(sha.getSessionId(), sha.getSubscriptionId(), code);
+            roomGateway.dispatch(new RoomOperation(RoomOperation.Type.SPECTATE, code, sha.getSessionId()));
         }
     }
 
     @EventListener
     public void handleUnsubscribe(SessionUnsubscribeEvent event) {
         StompHeaderAccessor sha = StompHeaderAccessor.wrap(event.getMessage());
-        String sessionId = sha.getSessionId();
-        roomService.removePlayerFromAllRooms(sessionId);
+        String watched = roomService.untrackSpectator(sha.getSessionId(), sha.getSubscriptionId());
+        if (watched != null) {
+            roomGateway.dispatch(new RoomOperation(RoomOperation.Type.UNSPECTATE, watched, sha.getSessionId()));
+            return;
+        }
+        leave(sha.getSessionId());
     }
 
     @EventListener
     public void handleDisconnect(SessionDisconnectEvent event) {
         String sessionId = event.getSessionId();
-        Room room = roomService.findRoomBySessionId(sessionId);
-        if (room != null) {
-            room.removePlayer(sessionId);
-            // Broadcast updated boards to all players in the room using BoardsListMessage
-            java.util.Map<String, Cell[][]> boards = new java.util.HashMap<>();
-            java.util.Map<String, Integer> filledCounts = new java.util.HashMap<>();
-            int maxFilled = 0;
-            for (String player : room.getPlayers()) {
-                boards.put(player, room.getBoardForPlayer(player));
-                int filled = room.getFilledCellCount(player);
-                filledCounts.put(player, filled);
-                if (filled > maxFilled)
-                    maxFilled = filled;
-            }
-            java.util.Map<String, Integer> stepsAhead = new java.util.HashMap<>();
-            for (String player : room.getPlayers()) {
-                stepsAhead.put(player, filledCounts.get(player)
-                        - (filledCounts.values().stream().filter(x -> x != null).mapToInt(x -> x).max().orElse(0)));
-            }
-            int playerCount = room.getPlayers().size();
-            BoardsListMessage boardsListMessage = new BoardsListMessage(boards, playerCount, filledCounts, stepsAhead);
-            messagingTemplate.convertAndSend("/topic/room/" + room.getCode(), boardsListMessage);
+        for (String watched : roomService.untrackSpectatorSession(sessionId)) {
+            roomGateway.dispatch(new RoomOperation(RoomOperation.Type.UNSPECTATE, watched, sessionId));
+        }
+        leave(sessionId);
+    }
+
+    private void leave(String sessionId) {
+        for (String code : roomService.untrackSession(sessionId)) {
+            roomGateway.dispatch(new RoomOperation(RoomOperation.Type.LEAVE, code, sessionId));
         }
-        roomService.removePlayerFromAllRooms(sessionId);
     }
 }
@@ -0,0 +1,30 @@
+package com.em.multiplayersudoku;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one {@link SudokuGenerator#generate} call.
+ */
+@Name("com.em.multiplayersudoku.PuzzleGeneration")
+@Label("Puzzle Generation")
+@Category("Multiplayer Sudoku")
+@StackTrace(false)
+public class PuzzleGenerationEvent extends jdk.jfr.Event {
+    @Label("Difficulty")
+    String difficulty;
+
+    @Label("Requested Clues")
+    int requestedClues;
+
+    @Label("Clues")
+    @Description("Clues left; more than requested when removing further cells breaks uniqueness")
+    int clues;
+
+    @Label("Solver Nodes")
+    @Description("Search nodes visited filling the grid and checking uniqueness")
+    long solverNodes;
+}
@@ -0,0 +1,167 @@
+package com.em.multiplayersudoku;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.em.multiplayersudoku.domain.Difficulty;
+import com.em.multiplayersudoku.domain.Puzzle;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps a bounded queue of ready puzzles per {@link Difficulty} so that starting
+ * a game does not run the generator on the room's shard. Background workers top
+ * a queue back up to capacity once it drops below the low-water mark; a take that
+ * finds the queue empty is generated on a separate pool instead, never on the
+ * caller's thread.
+ */
+@Service
+public class PuzzlePool {
+    private static final Logger logger = LoggerFactory.getLogger(PuzzlePool.class);
+
+    private final int capacity;
+    private final int lowWaterMark;
+    private final Map<Difficulty, ArrayBlockingQueue<Puzzle>> queues = new EnumMap<>(Difficulty.class);
+    private final Map<Difficulty, AtomicBoolean> refilling = new EnumMap<>(Difficulty.class);
+    private final ExecutorService workers;
+    // generates for takes that found the queue empty, apart from the low-priority refills
+    private final ExecutorService missGenerators;
+    // generators are not thread-safe: one per worker thread
+    private final ThreadLocal<SudokuGenerator> generators = ThreadLocal.withInitial(SudokuGenerator::new);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refills = new LongAdder();
+
+    private final GameMetrics gameMetrics;
+
+    public PuzzlePool(@Value("${sudoku.puzzle-pool.capacity:32}") int capacity,
+            @Value("${sudoku.puzzle-pool.low-water-mark:8}") int lowWaterMark,
+            @Value("${sudoku.puzzle-pool.workers:1}") int workerCount, GameMetrics gameMetrics) {
+        this.gameMetrics = gameMetrics;
+        this.capacity = Math.max(1, capacity);
+        this.lowWaterMark = Math.min(Math.max(0, lowWaterMark), this.capacity);
+        for (Difficulty difficulty : Difficulty.values()) {
+            queues.put(difficulty, new ArrayBlockingQueue<>(this.capacity));
+            refilling.put(difficulty, new AtomicBoolean());
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerCount), runnable -> {
+            Thread thread = new Thread(runnable, "puzzle-pool-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        AtomicInteger missThreadNumber = new AtomicInteger();
+        this.missGenerators = Executors.newFixedThreadPool(Math.max(1, workerCount), runnable -> {
+            Thread thread = new Thread(runnable, "puzzle-miss-" + missThreadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void prefill() {
+        for (Difficulty difficulty : Difficulty.values()) {
+            scheduleRefill(difficulty);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+        missGenerators.shutdownNow();
+    }
+
+    /**
+     * A puzzle for the difficulty: already completed when the pool had one ready,
+     * otherwise completed on another thread once it has been generated.
+     */
+    public CompletableFuture<Puzzle> take(Difficulty difficulty) {
+        ArrayBlockingQueue<Puzzle> queue = queues.get(difficulty);
+        Puzzle puzzle = queue.poll();
+        CompletableFuture<Puzzle> result;
+        if (puzzle != null) {
+            hits.increment();
+            result = CompletableFuture.completedFuture(puzzle);
+        } else {
+            misses.increment();
+            result = CompletableFuture.supplyAsync(() -> generate(generators.get(), difficulty, true),
+                    missGenerators);
+        }
+        if (queue.size() < lowWaterMark) {
+            scheduleRefill(difficulty);
+        }
+        return result;
+    }
+
+    private Puzzle generate(SudokuGenerator generator, Difficulty difficulty, boolean onMiss) {
+        long started = System.nanoTime();
+        Puzzle puzzle = generator.generate(difficulty);
+        gameMetrics.recordGeneration(difficulty, onMiss, System.nanoTime() - started);
+        return puzzle;
+    }
+
+    private void scheduleRefill(Difficulty difficulty) {
+        AtomicBoolean flag = refilling.get(difficulty);
+        if (!flag.compareAndSet(false, true))
+            return;
+        try {
+            workers.execute(() -> refill(difficulty));
+        } catch (RejectedExecutionException e) {
+            flag.set(false); // shutting down
+        }
+    }
+
+    private void refill(Difficulty difficulty) {
+        ArrayBlockingQueue<Puzzle> queue = queues.get(difficulty);
+        SudokuGenerator generator = generators.get();
+        boolean failed = false;
+        try {
+            while (queue.remainingCapacity() > 0 && !Thread.currentThread().isInterrupted()) {
+                if (!queue.offer(generate(generator, difficulty, false)))
+                    break;
+                refills.increment();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Puzzle pool refill failed for {}", difficulty, e);
+            failed = true;
+        } finally {
+            refilling.get(difficulty).set(false);
+        }
+        // a take() may have drained the queue while the flag was still set
+        if (!failed && queue.size() < lowWaterMark && !Thread.currentThread().isInterrupted()) {
+            scheduleRefill(difficulty);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getRefills() {
+        return refills.sum();
+    }
+
+    public int getAvailable(Difficulty difficulty) {
+        return queues.get(difficulty).size();
+    }
+}
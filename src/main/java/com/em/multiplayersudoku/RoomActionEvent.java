@@ -0,0 +1,36 @@
+package com.em.multiplayersudoku;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one game action, spanning its work on the room's shard.
+ */
+@Name("com.em.multiplayersudoku.RoomAction")
+@Label("Room Action")
+@Category("Multiplayer Sudoku")
+@Description("A game action applied on its room's shard")
+@StackTrace(false)
+public class RoomActionEvent extends jdk.jfr.Event {
+    @Label("Room")
+    String room;
+
+    @Label("Action")
+    String action;
+
+    @Label("Seat")
+    @Description("Sender's seat, -1 if not seated")
+    int seat;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Latency")
+    @Description("From receipt on the inbound channel to the end of the shard's work")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+}
@@ -0,0 +1,371 @@
+package com.em.multiplayersudoku;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import com.em.multiplayersudoku.domain.GameAction;
+import com.em.multiplayersudoku.domain.GameAction.ActionType;
+import com.em.multiplayersudoku.domain.PendingChanges;
+import com.em.multiplayersudoku.domain.PlayerBoard;
+import com.em.multiplayersudoku.domain.PlayerSlot;
+import com.em.multiplayersudoku.domain.Room;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Builds and sends room updates: full {@link BoardsListMessage} snapshots when
+ * the room changes shape (start, join, leave, win) and {@link BoardDeltaMessage}s
+ * for cell moves.
+ * <p>
+ * Room broadcasts are coalesced: changes are collected in the room's
+ * {@link PendingChanges} and sent as one message reflecting the latest state
+ * once the coalescing window ends, so a room sends at most one broadcast per
+ * window however fast its players type. All methods must run on the room's shard.
+ * <p>
+ * Spectators on /topic/room/{code}/spectate get snapshots only, at most one per
+ * {@code sudoku.spectate.interval-ms}, each reflecting the latest state. A frame
+ * is serialized once on the room's shard; handing it to the broker, which copies
+ * it to every spectator session, runs on a virtual thread of its own so a room
+ * with thousands of viewers does not hold up its players' moves. A room has one
+ * frame in flight at most: a slow hand-off only holds back that room's next
+ * frame, which then carries the latest state.
+ */
+@Component
+public class RoomBroadcaster {
+    private static final int GRID_SIZE = SudokuGenerator.GRID_SIZE;
+    // lets a slow session's outbound queue replace stale board frames, see ConflatingWebSocketSession
+    private static final Map<String, Object> SNAPSHOT_HEADERS = Map.of(ConflatingWebSocketSession.CONFLATE_HEADER,
+            ConflatingWebSocketSession.SNAPSHOT);
+    private static final Map<String, Object> DELTA_HEADERS = Map.of(ConflatingWebSocketSession.CONFLATE_HEADER,
+            ConflatingWebSocketSession.DELTA);
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private RoomExecutor roomExecutor;
+
+    // 0 sends every change immediately
+    @Value("${sudoku.broadcast.coalesce-window-ms:16}")
+    private long coalesceWindowMillis;
+
+    @Value("${sudoku.spectate.interval-ms:500}")
+    private long spectateIntervalMillis;
+
+    // a virtual thread per frame; a room has at most one in flight, which keeps its frames in order
+    private final ExecutorService spectatorFanout = Executors
+            .newThreadPerTaskExecutor(Thread.ofVirtual().name("spectator-fanout-", 0).factory());
+
+    public static String topic(String code) {
+        return "/topic/room/" + code;
+    }
+
+    public static String compactTopic(String code) {
+        return topic(code) + "/compact";
+    }
+
+    public static String spectateTopic(String code) {
+        return topic(code) + "/spectate";
+    }
+
+    /**
+     * Queues a snapshot of every board for the whole room. It replaces any cell
+     * changes queued in the same window.
+     */
+    public void broadcastSnapshot(Room room) {
+        room.getPendingChanges().requestSnapshot();
+        scheduleFlush(room);
+    }
+
+    /**
+     * Queues the new contents of one cell. {@code removedBy} is the player whose
+     * REMOVE cooldown started with this change, or null.
+     */
+    public void broadcastCellChange(Room room, PlayerSlot boardOwner, int row, int col, PlayerSlot removedBy) {
+        PendingChanges pending = room.getPendingChanges();
+        pending.markCell(boardOwner.getIndex(), row * GRID_SIZE + col);
+        if (removedBy != null)
+            pending.markRemoveUsed(removedBy.getIndex());
+        scheduleFlush(room);
+    }
+
+    /**
+     * Sends whatever is queued, then the WIN, so clients see the winning move
+     * before the result.
+     */
+    public void broadcastWin(Room room, String winnerSessionId) {
+        flush(room);
+        GameAction winAction = new GameAction();
+        winAction.setType(ActionType.WIN);
+        winAction.setSessionId(winnerSessionId);
+        sendToRoom(room, winAction, null);
+    }
+
+    private void scheduleFlush(Room room) {
+        if (coalesceWindowMillis <= 0) {
+            flush(room);
+            return;
+        }
+        PendingChanges pending = room.getPendingChanges();
+        if (pending.isFlushScheduled())
+            return;
+        pending.setFlushScheduled(true);
+        roomExecutor.schedule(room.getCode(), () -> {
+            pending.setFlushScheduled(false);
+            flush(room);
+        }, coalesceWindowMillis);
+    }
+
+    /**
+     * Sends the queued changes as a single snapshot or delta.
+     */
+    public void flush(Room room) {
+        PendingChanges pending = room.getPendingChanges();
+        if (pending.isEmpty())
+            return;
+        broadcastToSpectators(room);
+        if (pending.isSnapshotRequested()) {
+            pending.clear();
+            sendSnapshotToRoom(room);
+        } else {
+            BoardDeltaMessage delta = buildDelta(room, pending);
+            pending.clear();
+            // deltas are already small; both encodings get the same message
+            if (delta != null)
+                sendToRoom(room, delta, DELTA_HEADERS);
+        }
+    }
+
+    private void sendSnapshotToRoom(Room room) {
+        long seq = room.nextSequence();
+        int compactSubscribers = room.getCompactSubscriberCount();
+        int fullSubscribers = room.getPlayerCount() - compactSubscribers;
+        // the JSON topic is always published: not every subscriber there holds a seat
+        send(room, topic(room.getCode()), buildSnapshot(room, seq, false), SNAPSHOT_HEADERS, fullSubscribers);
+        if (compactSubscribers > 0) {
+            send(room, compactTopic(room.getCode()), buildSnapshot(room, seq, true), SNAPSHOT_HEADERS,
+                    compactSubscribers);
+        }
+    }
+
+    /**
+     * Marks the spectator view stale and makes sure a frame goes out once the
+     * spectator interval since the last one has passed.
+     */
+    public void broadcastToSpectators(Room room) {
+        if (room.getSpectatorCount() == 0)
+            return;
+        PendingChanges pending = room.getPendingChanges();
+        pending.setSpectatorsBehind(true);
+        if (pending.isSpectatorFrameScheduled())
+            return;
+        pending.setSpectatorFrameScheduled(true);
+        long delay = pending.getLastSpectatorFrame() + spectateIntervalMillis - System.currentTimeMillis();
+        roomExecutor.schedule(room.getCode(), () -> {
+            pending.setSpectatorFrameScheduled(false);
+            sendSpectatorFrame(room);
+        }, Math.max(0, delay));
+    }
+
+    private void sendSpectatorFrame(Room room) {
+        PendingChanges pending = room.getPendingChanges();
+        if (!pending.isSpectatorsBehind() || room.getSpectatorCount() == 0)
+            return;
+        // the previous frame is still being handed out; the latest state follows once it is done
+        if (pending.isSpectatorFanoutRunning())
+            return;
+        pending.setSpectatorsBehind(false);
+        pending.setLastSpectatorFrame(System.currentTimeMillis());
+        // serialized here, once; every spectator session gets the same payload bytes
+        BoardsListMessage snapshot = buildSnapshot(room, room.getSequence(), false);
+        Message<?> frame = toFrame(snapshot, SNAPSHOT_HEADERS);
+        if (frame == null)
+            return;
+        String code = room.getCode();
+        int spectators = room.getSpectatorCount();
+        pending.setSpectatorFanoutRunning(true);
+        try {
+            spectatorFanout.execute(() -> {
+                try {
+                    BroadcastEvent event = new BroadcastEvent();
+                    event.begin();
+                    String destination = spectateTopic(code);
+                    messagingTemplate.send(destination, frame);
+                    commit(event, code, destination, snapshot, frame, spectators);
+                } finally {
+                    roomExecutor.execute(code, () -> spectatorFanoutDone(room));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.setSpectatorFanoutRunning(false); // shutting down
+        }
+    }
+
+    private void spectatorFanoutDone(Room room) {
+        PendingChanges pending = room.getPendingChanges();
+        pending.setSpectatorFanoutRunning(false);
+        if (pending.isSpectatorsBehind() && !pending.isSpectatorFrameScheduled())
+            broadcastToSpectators(room);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        spectatorFanout.shutdownNow();
+    }
+
+    /**
+     * Sends the current snapshot to one session only (gap recovery), on
+     * /user/queue/room/{code}.
+     */
+    public void sendSnapshot(Room room, String sessionId) {
+        PlayerSlot player = room.getPlayer(sessionId);
+        boolean compact = player != null && player.isCompactEncoding();
+        BoardsListMessage message = buildSnapshot(room, room.getSequence(), compact);
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setNativeHeader(ConflatingWebSocketSession.CONFLATE_HEADER, ConflatingWebSocketSession.SNAPSHOT);
+        headers.setLeaveMutable(true);
+        messagingTemplate.convertAndSendToUser(sessionId, "/queue/room/" + room.getCode(), message,
+                headers.getMessageHeaders());
+    }
+
+    // null if nothing queued still applies (e.g. the player left)
+    private BoardDeltaMessage buildDelta(Room room, PendingChanges pending) {
+        List<BoardDeltaMessage.CellChange> changes = new ArrayList<>();
+        Map<String, Integer> filledCounts = new HashMap<>();
+        Map<String, Long> cooldowns = null;
+        for (int seat = 0; seat < room.getMaxPlayers(); seat++) {
+            PlayerSlot player = room.getSlot(seat);
+            if (player == null)
+                continue; // left since; the leave snapshot covers it
+            if (pending.hasDirtyCells(seat) && player.getBoard() != null) {
+                addChanges(changes, player, pending.getDirtyLow(seat), 0);
+                addChanges(changes, player, pending.getDirtyHigh(seat), 64);
+                filledCounts.put(player.getSessionId(), player.getFilledCellCount());
+            }
+            if (pending.isRemoveUsed(seat)) {
+                if (cooldowns == null)
+                    cooldowns = new HashMap<>();
+                cooldowns.put(player.getSessionId(), room.getRemoveCooldownUntil(player));
+            }
+        }
+        if (changes.isEmpty() && cooldowns == null)
+            return null;
+        BoardDeltaMessage message = new BoardDeltaMessage(room.nextSequence(), changes, filledCounts,
+                room.getMaxFilledCount());
+        message.setRemoveCooldownUntilMap(cooldowns);
+        return message;
+    }
+
+    private static void addChanges(List<BoardDeltaMessage.CellChange> changes, PlayerSlot player, long dirty,
+            int firstCell) {
+        PlayerBoard board = player.getBoard();
+        while (dirty != 0) {
+            int cell = firstCell + Long.numberOfTrailingZeros(dirty);
+            dirty &= dirty - 1;
+            int row = cell / GRID_SIZE;
+            int col = cell % GRID_SIZE;
+            changes.add(new BoardDeltaMessage.CellChange(player.getSessionId(), row, col, board.getValue(row, col),
+                    board.getStatus(row, col), board.getCooldownUntil(row, col)));
+        }
+    }
+
+    private void sendToRoom(Room room, Object message, Map<String, Object> headers) {
+        int compactSubscribers = room.getCompactSubscriberCount();
+        int fullSubscribers = room.getPlayerCount() - compactSubscribers;
+        send(room, topic(room.getCode()), message, headers, fullSubscribers);
+        if (compactSubscribers > 0) {
+            send(room, compactTopic(room.getCode()), message, headers, compactSubscribers);
+        }
+    }
+
+    // convertAndSend, with the serialized frame at hand for the BroadcastEvent
+    private void send(Room room, String destination, Object message, Map<String, Object> headers,
+            int subscribers) {
+        BroadcastEvent event = new BroadcastEvent();
+        event.begin();
+        Message<?> frame = toFrame(message, headers);
+        if (frame == null)
+            return;
+        messagingTemplate.send(destination, frame);
+        commit(event, room.getCode(), destination, message, frame, subscribers);
+    }
+
+    // headers become STOMP native headers, as with convertAndSend
+    private Message<?> toFrame(Object message, Map<String, Object> headers) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        if (headers != null)
+            headers.forEach((name, value) -> accessor.setNativeHeader(name, String.valueOf(value)));
+        accessor.setLeaveMutable(true);
+        return messagingTemplate.getMessageConverter().toMessage(message, accessor.getMessageHeaders());
+    }
+
+    private static void commit(BroadcastEvent event, String code, String destination, Object message,
+            Message<?> frame, int subscribers) {
+        if (!event.shouldCommit())
+            return;
+        event.room = code;
+        event.destination = destination;
+        event.messageType = message.getClass().getSimpleName();
+        event.payloadSize = (frame.getPayload() instanceof byte[]) ? ((byte[]) frame.getPayload()).length : -1;
+        event.subscribers = subscribers;
+        event.commit();
+    }
+
+    private BoardsListMessage buildSnapshot(Room room, long seq, boolean compact) {
+        Map<String, PlayerBoard> boards = compact ? null : new HashMap<>();
+        Map<String, CompactBoard> compactBoards = compact ? new HashMap<>() : null;
+        Map<String, Integer> filledCounts = new HashMap<>();
+        Map<String, Integer> stepsAhead = new HashMap<>();
+        Map<String, Integer> ranks = new HashMap<>();
+        Map<String, Boolean> canRemoveOpponentCellMap = new HashMap<>();
+        Map<String, Long> removeCooldownUntilMap = new HashMap<>();
+        long now = System.currentTimeMillis();
+        int maxFilled = room.getMaxFilledCount();
+        for (int i = 0; i < room.getMaxPlayers(); i++) {
+            PlayerSlot player = room.getSlot(i);
+            if (player == null)
+                continue;
+            String id = player.getSessionId();
+            PlayerBoard board = player.getBoard();
+            if (compact) {
+                if (board != null)
+                    compactBoards.put(id, CompactBoard.encode(board, now));
+            } else {
+                boards.put(id, board);
+            }
+            int filled = player.getFilledCellCount();
+            filledCounts.put(id, filled);
+            // relative to the leader, from the room's running standings
+            stepsAhead.put(id, filled - maxFilled);
+            ranks.put(id, room.getRank(player));
+            canRemoveOpponentCellMap.put(id, room.canRemoveOpponentCell(player));
+            removeCooldownUntilMap.put(id, room.getRemoveCooldownUntil(player));
+        }
+        BoardsListMessage message = new BoardsListMessage(boards, room.getPlayerCount(), filledCounts,
+                stepsAhead);
+        message.setSeq(seq);
+        message.setMaxPlayers(room.getMaxPlayers());
+        message.setRanks(ranks);
+        message.setCompactBoards(compactBoards);
+        message.setCanRemoveOpponentCellMap(canRemoveOpponentCellMap);
+        message.setRemoveCooldownUntilMap(removeCooldownUntilMap);
+        message.setMaxStepGap(room.getRemoveThreshold());
+        message.setCooldownSeconds(room.getCooldownSeconds());
+        message.setDifficulty(room.getDifficulty().name());
+        return message;
+    }
+}
@@ -0,0 +1,86 @@
+package com.em.multiplayersudoku;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out 6-character room codes without a lock. Each code is a counter value
+ * pushed through a keyed bijection on 30 bits and written in Crockford base32
+ * (no I, L, O or U), so codes look random but never repeat until all 2^30 have
+ * been used. Collisions only happen after a wrap-around, and callers retry.
+ */
+@Component
+public class RoomCodeAllocator {
+    public static final int CODE_LENGTH = 6;
+    // Crockford base32 alphabet, keep CODE_REGEX in sync
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    public static final String CODE_REGEX = "[0-9A-HJKMNP-TV-Z]{" + CODE_LENGTH + "}";
+
+    private static final int BITS = 5 * CODE_LENGTH;
+    private static final long MASK = (1L << BITS) - 1;
+    // character -> 5-bit value, -1 outside the alphabet
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            VALUES[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private final AtomicLong counter;
+    private final long key;
+
+    public RoomCodeAllocator() {
+        SecureRandom random = new SecureRandom();
+        this.counter = new AtomicLong(random.nextLong() & MASK);
+        this.key = random.nextLong() & MASK;
+    }
+
+    public String next() {
+        return encode(scramble(counter.getAndIncrement() & MASK));
+    }
+
+    // Each step is invertible modulo 2^30: xor, odd multiply, xor-shift
+    private long scramble(long x) {
+        x ^= key;
+        x = (x * 0x2545F491L) & MASK;
+        x ^= x >>> 15;
+        x = (x * 0x1B873593L) & MASK;
+        x ^= x >>> 13;
+        return x;
+    }
+
+    /**
+     * The 30-bit value a code was written from, or -1 if it is not a valid code.
+     */
+    public static long toBits(String code) {
+        if (code == null || code.length() != CODE_LENGTH)
+            return -1;
+        long x = 0;
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            char c = code.charAt(i);
+            int value = (c < VALUES.length) ? VALUES[c] : -1;
+            if (value < 0)
+                return -1;
+            x = (x << 5) | value;
+        }
+        return x;
+    }
+
+    public static String fromBits(long bits) {
+        return encode(bits & MASK);
+    }
+
+    private static String encode(long x) {
+        char[] code = new char[CODE_LENGTH];
+        for (int i = CODE_LENGTH - 1; i >= 0; i--) {
+            code[i] = ALPHABET[(int) (x & 31)];
+            x >>>= 5;
+        }
+        return new String(code);
+    }
+}
@@ -0,0 +1,107 @@
+package com.em.multiplayersudoku;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs all work for a room on one of a fixed set of single-threaded event
+ * loops, picked by hashing the room code. Actions for the same room are applied
+ * one at a time in arrival order without locks, while different rooms spread
+ * across shards and cores.
+ * <p>
+ * {@link com.em.multiplayersudoku.domain.Room} state must only be changed from
+ * tasks submitted here.
+ */
+@Component
+public class RoomExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(RoomExecutor.class);
+
+    private final ThreadPoolExecutor[] shards;
+    // only fires delayed tasks over to their shard, never runs room work itself
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "room-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RoomExecutor(@Value("${sudoku.room-executor.shards:0}") int shardCount) {
+        int count = (shardCount > 0) ? shardCount : Runtime.getRuntime().availableProcessors();
+        this.shards = new ThreadPoolExecutor[count];
+        for (int i = 0; i < count; i++) {
+            String name = "room-shard-" + i;
+            // single thread; a plain ThreadPoolExecutor so queue depth can be read
+            shards[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    /**
+     * Queues a task on the room's shard.
+     */
+    public void execute(String roomCode, Runnable task) {
+        try {
+            shards[shardOf(roomCode)].execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    logger.error("Room task failed for {}", roomCode, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Room executor shut down, dropping task for {}", roomCode);
+        }
+    }
+
+    /**
+     * Queues a task on the room's shard after a delay.
+     */
+    public void schedule(String roomCode, Runnable task, long delayMillis) {
+        try {
+            timer.schedule(() -> execute(roomCode, task), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Room executor shut down, dropping delayed task for {}", roomCode);
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // tasks waiting across all shards
+    public int getQueuedTasks() {
+        int queued = 0;
+        for (ThreadPoolExecutor shard : shards) {
+            queued += shard.getQueue().size();
+        }
+        return queued;
+    }
+
+    int shardOf(String roomCode) {
+        int h = roomCode.hashCode();
+        h ^= (h >>> 16);
+        return Math.floorMod(h, shards.length);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        timer.shutdownNow();
+        for (ThreadPoolExecutor shard : shards) {
+            shard.shutdown();
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.em.multiplayersudoku;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.em.multiplayersudoku.ActionFlightRecorder.Outcome;
+import com.em.multiplayersudoku.domain.GameAction;
+import com.em.multiplayersudoku.domain.PlayerSlot;
+import com.em.multiplayersudoku.domain.Puzzle;
+import com.em.multiplayersudoku.domain.Room;
+import com.em.multiplayersudoku.domain.RoomOperation;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Entry point for all room work. Operations for rooms this node owns run on the
+ * room's shard; anything else is forwarded through the {@link RoomStore} to the
+ * owning node.
+ */
+@Component
+public class RoomGateway {
+    private static final Logger logger = LoggerFactory.getLogger(RoomGateway.class);
+
+    @Autowired
+    private RoomStore roomStore;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private RoomBroadcaster roomBroadcaster;
+
+    @Autowired
+    private PuzzlePool puzzlePool;
+
+    @Autowired
+    private RoomExecutor roomExecutor;
+
+    @Autowired
+    private GameMetrics gameMetrics;
+
+    @Autowired
+    private RoomJournal roomJournal;
+
+    @Autowired
+    private ActionFlightRecorder flightRecorder;
+
+    @PostConstruct
+    void registerHandler() {
+        roomStore.setOperationHandler(this::applyLocally);
+    }
+
+    public void dispatch(RoomOperation operation) {
+        String code = operation.getRoomCode();
+        if (roomStore.getOwner(code) == null) {
+            logger.warn("Room not found: {}", code);
+            return;
+        }
+        RoomOperation.Type type = operation.getType();
+        if (type == RoomOperation.Type.JOIN || type == RoomOperation.Type.START) {
+            // tracked on this node, where the session is connected, only once the owner seated it
+            String sessionId = operation.getSessionId();
+            roomService.requestSeat(sessionId, code);
+            operation.setOnSeated(() -> seated(sessionId, code));
+        }
+        route(operation);
+    }
+
+    // A session plays in one room at a time: leave the previous one, or this one if it moved on
+    private void seated(String sessionId, String code) {
+        String leave = roomService.trackSession(sessionId, code);
+        if (leave != null)
+            route(new RoomOperation(RoomOperation.Type.LEAVE, leave, sessionId));
+    }
+
+    private void route(RoomOperation operation) {
+        if (roomStore.getLocal(operation.getRoomCode()) != null) {
+            applyLocally(operation);
+        } else if (!roomStore.forward(operation)) {
+            logger.warn("Room {} is owned by node {}, which is not reachable from {}", operation.getRoomCode(),
+                    roomStore.getOwner(operation.getRoomCode()), roomStore.getNodeId());
+        }
+    }
+
+    // Queues the operation on the room's shard so work for one room never runs concurrently
+    private void applyLocally(RoomOperation operation) {
+        Room room = roomStore.getLocal(operation.getRoomCode());
+        if (room == null) {
+            logger.debug("Room {} no longer on this node, dropping {}", operation.getRoomCode(), operation.getType());
+            return;
+        }
+        String code = room.getCode();
+        String sessionId = operation.getSessionId();
+        long received = System.nanoTime();
+        switch (operation.getType()) {
+            case ACTION:
+                GameAction action = operation.getAction();
+                roomExecutor.execute(code, () -> {
+                    RoomActionEvent event = new RoomActionEvent();
+                    event.begin();
+                    Outcome outcome = Outcome.IGNORED;
+                    try {
+                        outcome = applyAction(room, action, sessionId);
+                    } finally {
+                        long elapsed = System.nanoTime() - received;
+                        int seat = room.slotOf(sessionId);
+                        gameMetrics.recordAction(action.getType(), elapsed);
+                        flightRecorder.recordAction(code, action.getType(), seat, action.getRow(), action.getCol(),
+                                action.getValue(), outcome, sessionId, elapsed);
+                        if (event.shouldCommit()) {
+                            event.room = code;
+                            event.action = String.valueOf(action.getType());
+                            event.seat = seat;
+                            event.outcome = outcome.name();
+                            event.latency = elapsed;
+                            event.commit();
+                        }
+                    }
+                });
+                break;
+            case START:
+                roomExecutor.execute(code, () -> {
+                    seat(room, operation);
+                    // One puzzle for the whole room; a repeated start while running, or while the
+                    // puzzle is still being generated, keeps the current boards and only re-sends them
+                    if (room.isRunning() || room.isStartPending()) {
+                        start(room, sessionId, null, received);
+                        return;
+                    }
+                    CompletableFuture<Puzzle> puzzle = puzzlePool.take(room.getDifficulty());
+                    Puzzle ready = puzzle.getNow(null);
+                    if (ready != null) {
+                        start(room, sessionId, ready, received);
+                        return;
+                    }
+                    // the pool ran dry: the shard moves on to other rooms while a puzzle is generated
+                    room.setStartPending(true);
+                    puzzle.whenComplete((generated, failure) -> roomExecutor.execute(code, () -> {
+                        room.setStartPending(false);
+                        if (failure != null) {
+                            logger.error("Puzzle generation failed, room {} not started", code, failure);
+                        } else if (roomStore.getLocal(code) == room) {
+                            start(room, sessionId, generated, received);
+                        }
+                    }));
+                });
+                break;
+            case SNAPSHOT:
+                roomExecutor.execute(code, () -> roomBroadcaster.sendSnapshot(room, sessionId));
+                break;
+            case JOIN:
+                roomExecutor.execute(code, () -> {
+                    Outcome outcome = seat(room, operation) ? Outcome.APPLIED : Outcome.IGNORED;
+                    if (operation.isCompact())
+                        room.useCompactEncoding(sessionId);
+                    flightRecorder.record(RoomOperation.Type.JOIN, code, room.slotOf(sessionId), outcome, sessionId,
+                            System.nanoTime() - received);
+                });
+                break;
+            case SPECTATE:
+                roomExecutor.execute(code, () -> {
+                    room.addSpectator();
+                    // newcomers get a frame within one spectator interval
+                    roomBroadcaster.broadcastToSpectators(room);
+                });
+                break;
+            case UNSPECTATE:
+                roomExecutor.execute(code, room::removeSpectator);
+                break;
+            case LEAVE:
+                roomExecutor.execute(code, () -> {
+                    int seat = room.slotOf(sessionId);
+                    // Broadcast updated boards to the players left in the room
+                    Outcome outcome = Outcome.NOT_SEATED;
+                    if (room.removePlayer(sessionId)) {
+                        roomJournal.left(room, seat);
+                        roomBroadcaster.broadcastSnapshot(room);
+                        outcome = Outcome.APPLIED;
+                    }
+                    flightRecorder.record(RoomOperation.Type.LEAVE, code, seat, outcome, sessionId,
+                            System.nanoTime() - received);
+                });
+                break;
+        }
+    }
+
+    // Must run on the room's shard; a null puzzle only re-sends the boards
+    private void start(Room room, String sessionId, Puzzle puzzle, long received) {
+        Outcome outcome = Outcome.IGNORED;
+        if (puzzle != null && room.start(() -> puzzle)) {
+            roomJournal.started(room);
+            outcome = Outcome.APPLIED;
+        } else {
+            logger.debug("Room {} already running, ignoring start from {}", room.getCode(), sessionId);
+        }
+        // Broadcast all boards to all players (on game start)
+        roomBroadcaster.broadcastSnapshot(room);
+        long elapsed = System.nanoTime() - received;
+        gameMetrics.recordStart(elapsed);
+        flightRecorder.record(RoomOperation.Type.START, room.getCode(), room.slotOf(sessionId), outcome, sessionId,
+                elapsed);
+    }
+
+    // Must run on the room's shard
+    private boolean seat(Room room, RoomOperation operation) {
+        String sessionId = operation.getSessionId();
+        if (!room.addPlayer(sessionId))
+            return false;
+        roomJournal.seated(room, room.slotOf(sessionId));
+        if (operation.getOnSeated() != null)
+            operation.getOnSeated().run();
+        return true;
+    }
+
+    // Client input: row and col index the packed board directly
+    private static boolean isOnBoard(GameAction action) {
+        return action.getRow() >= 0 && action.getRow() < SudokuGenerator.GRID_SIZE && action.getCol() >= 0
+                && action.getCol() < SudokuGenerator.GRID_SIZE;
+    }
+
+    // Must run on the room's shard
+    private Outcome applyAction(Room room, GameAction action, String sessionId) {
+        // Resolve the sender's seat once; null if not seated in this room
+        PlayerSlot player = room.getPlayer(sessionId);
+        if (player != null)
+            room.touch(); // keeps the room clear of idle eviction
+        switch (action.getType()) {
+            case FILL:
+                if (player == null)
+                    return Outcome.NOT_SEATED;
+                if (!room.isRunning())
+                    return Outcome.NOT_RUNNING;
+                if (!isOnBoard(action) || action.getValue() < 0 || action.getValue() > SudokuGenerator.GRID_SIZE)
+                    return Outcome.INVALID;
+                // Block input if cell is on cooldown
+                if (room.isCellOnCooldown(player, action.getRow(), action.getCol()))
+                    return Outcome.COOLDOWN;
+                Puzzle puzzle = room.getPuzzle();
+                if (puzzle != null && action.getValue() != puzzle.getSolution(action.getRow(), action.getCol())) {
+                    room.setCellCooldown(player, action.getRow(), action.getCol());
+                }
+                room.updateCellForPlayer(player, action.getRow(), action.getCol(), action.getValue());
+                roomJournal.cellChanged(room, player.getIndex(), action.getRow(), action.getCol(), action.getValue());
+                roomBroadcaster.broadcastCellChange(room, player, action.getRow(), action.getCol(), null);
+                if (room.isPlayerBoardComplete(player) && room.finish()) {
+                    roomJournal.finished(room);
+                    roomBroadcaster.broadcastWin(room, sessionId);
+                    return Outcome.WON;
+                }
+                return Outcome.APPLIED;
+            case REMOVE:
+                if (player == null)
+                    return Outcome.NOT_SEATED;
+                if (!room.isRunning())
+                    return Outcome.NOT_RUNNING;
+                if (!isOnBoard(action))
+                    return Outcome.INVALID;
+                // If removing from own board, always allow
+                if (sessionId.equals(action.getSessionId())) {
+                    room.updateCellForPlayer(player, action.getRow(), action.getCol(), 0);
+                    roomJournal.cellChanged(room, player.getIndex(), action.getRow(), action.getCol(), 0);
+                    roomBroadcaster.broadcastCellChange(room, player, action.getRow(), action.getCol(), null);
+                    return Outcome.APPLIED;
+                }
+                // Removing from an opponent's board: the action names the board, and any
+                // opponent at least removeThreshold cells ahead of the sender can be targeted
+                if (!room.canUseRemove(player))
+                    return Outcome.COOLDOWN;
+                PlayerSlot opponent = room.getPlayer(action.getSessionId());
+                if (opponent == null || !room.canRemoveCell(player, opponent))
+                    return Outcome.IGNORED;
+                room.updateCellForPlayer(opponent, action.getRow(), action.getCol(), 0);
+                roomJournal.cellChanged(room, opponent.getIndex(), action.getRow(), action.getCol(), 0);
+                room.recordRemoveUse(player);
+                roomBroadcaster.broadcastCellChange(room, opponent, action.getRow(), action.getCol(), player);
+                return Outcome.APPLIED;
+            case JOIN:
+            case LEAVE:
+                // No-op, just re-send the boards
+                roomBroadcaster.broadcastSnapshot(room);
+                return Outcome.APPLIED;
+            case WIN:
+                // Fill all cells for the winner and broadcast
+                Outcome outcome = (player == null) ? Outcome.NOT_SEATED : Outcome.NOT_RUNNING;
+                if (player != null && room.isRunning()) {
+                    outcome = Outcome.IGNORED;
+                    if (player.getBoard() != null && room.finish()) {
+                        room.fillSolutionForPlayer(player);
+                        roomJournal.finished(room);
+                        roomJournal.solutionFilled(room, player.getIndex());
+                        // Broadcast WIN action to all clients
+                        roomBroadcaster.broadcastWin(room, sessionId);
+                        outcome = Outcome.WON;
+                    }
+                }
+                roomBroadcaster.broadcastSnapshot(room);
+                return outcome;
+            case HEARTBEAT:
+            default:
+                // Optionally handle keepalive/ping
+                return Outcome.IGNORED;
+        }
+    }
+}
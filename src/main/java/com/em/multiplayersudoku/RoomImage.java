@@ -0,0 +1,174 @@
+package com.em.multiplayersudoku;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.em.multiplayersudoku.domain.Difficulty;
+import com.em.multiplayersudoku.domain.PlayerBoard;
+import com.em.multiplayersudoku.domain.PlayerSlot;
+import com.em.multiplayersudoku.domain.Puzzle;
+import com.em.multiplayersudoku.domain.Room;
+import com.em.multiplayersudoku.domain.RoomState;
+
+/**
+ * Durable part of a room's state, as written to journal snapshots and rebuilt
+ * by replaying journal records on recovery: settings, game state, puzzle and
+ * each seat's board. Sessions, cooldowns and pending broadcasts are not kept.
+ */
+final class RoomImage {
+    private static final int CELLS = SudokuGenerator.GRID_SIZE * SudokuGenerator.GRID_SIZE;
+    private static final RoomState[] STATES = RoomState.values();
+    private static final Difficulty[] DIFFICULTIES = Difficulty.values();
+
+    final String code;
+    final Difficulty difficulty;
+    final int removeThreshold;
+    final int cooldownSeconds;
+    RoomState state = RoomState.LOBBY;
+    long journalSequence; // last record applied
+    int seated; // bit per occupied seat
+    Puzzle puzzle;
+    final PlayerBoard[] boards;
+
+    RoomImage(String code, Difficulty difficulty, int removeThreshold, int cooldownSeconds, int seats) {
+        this.code = code;
+        this.difficulty = difficulty;
+        this.removeThreshold = removeThreshold;
+        this.cooldownSeconds = cooldownSeconds;
+        this.boards = new PlayerBoard[seats];
+    }
+
+    void seat(int seat) {
+        seated |= 1 << seat;
+        // a restored board is kept, as Room hands it to the player taking the seat
+        if (boards[seat] == null && puzzle != null)
+            boards[seat] = new PlayerBoard(puzzle);
+    }
+
+    void leave(int seat) {
+        seated &= ~(1 << seat);
+        boards[seat] = null;
+    }
+
+    void start(Puzzle puzzle) {
+        this.puzzle = puzzle;
+        for (int seat = 0; seat < boards.length; seat++) {
+            boards[seat] = ((seated & (1 << seat)) != 0) ? new PlayerBoard(puzzle) : null;
+        }
+        state = RoomState.RUNNING;
+    }
+
+    // replayed records come from disk, not from validated moves: anything off the board is skipped
+    void setCell(int seat, int cellIndex, int value) {
+        if (cellIndex < 0 || cellIndex >= CELLS || value < 0 || value > SudokuGenerator.GRID_SIZE)
+            return;
+        if (hasBoard(seat))
+            boards[seat].setValue(cellIndex / SudokuGenerator.GRID_SIZE, cellIndex % SudokuGenerator.GRID_SIZE,
+                    value);
+    }
+
+    void fillSolution(int seat) {
+        if (hasBoard(seat))
+            boards[seat].fillSolution();
+    }
+
+    private boolean hasBoard(int seat) {
+        return seat >= 0 && seat < boards.length && boards[seat] != null;
+    }
+
+    void finish() {
+        state = RoomState.FINISHED;
+    }
+
+    /**
+     * A room holding this state with nobody seated.
+     */
+    Room toRoom() {
+        Room room = new Room(code, difficulty, removeThreshold, cooldownSeconds, boards.length);
+        room.restore(state, puzzle, boards, journalSequence);
+        return room;
+    }
+
+    /**
+     * Serializes a live room. Must run on the room's shard.
+     */
+    static byte[] encode(Room room) {
+        int seats = room.getMaxPlayers();
+        ByteBuffer buffer = ByteBuffer.allocate(RoomCodeAllocator.CODE_LENGTH + 20 + 2 * CELLS + seats * (1 + CELLS));
+        putCode(buffer, room.getCode());
+        buffer.put((byte) room.getDifficulty().ordinal());
+        buffer.putInt(room.getRemoveThreshold());
+        buffer.putInt(room.getCooldownSeconds());
+        buffer.put((byte) room.getState().ordinal());
+        buffer.putLong(room.getJournalSequence());
+        buffer.put((byte) seats);
+        Puzzle puzzle = room.getPuzzle();
+        buffer.put((byte) (puzzle != null ? 1 : 0));
+        if (puzzle != null)
+            putPuzzle(buffer, puzzle);
+        for (int seat = 0; seat < seats; seat++) {
+            PlayerSlot slot = room.getSlot(seat);
+            PlayerBoard board = (slot != null) ? slot.getBoard() : room.getRestoredBoard(seat);
+            // 0 = empty seat, 1 = seated, 2 = empty with a restored board, 3 = seated with a board
+            buffer.put((byte) ((slot != null ? 1 : 0) | (board != null ? 2 : 0)));
+            if (board != null)
+                buffer.put(board.copyPackedCells());
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    static RoomImage decode(ByteBuffer buffer) {
+        String code = getCode(buffer);
+        Difficulty difficulty = DIFFICULTIES[buffer.get()];
+        int removeThreshold = buffer.getInt();
+        int cooldownSeconds = buffer.getInt();
+        RoomState state = STATES[buffer.get()];
+        long journalSequence = buffer.getLong();
+        int seats = buffer.get();
+        RoomImage image = new RoomImage(code, difficulty, removeThreshold, cooldownSeconds, seats);
+        image.state = state;
+        image.journalSequence = journalSequence;
+        if (buffer.get() != 0)
+            image.puzzle = getPuzzle(buffer);
+        for (int seat = 0; seat < seats; seat++) {
+            int flags = buffer.get();
+            if ((flags & 1) != 0)
+                image.seated |= 1 << seat;
+            if ((flags & 2) != 0) {
+                byte[] cells = new byte[CELLS];
+                buffer.get(cells);
+                image.boards[seat] = new PlayerBoard(image.puzzle, cells);
+            }
+        }
+        return image;
+    }
+
+    static void putCode(ByteBuffer buffer, String code) {
+        buffer.put(code.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static String getCode(ByteBuffer buffer) {
+        byte[] code = new byte[RoomCodeAllocator.CODE_LENGTH];
+        buffer.get(code);
+        return new String(code, StandardCharsets.US_ASCII);
+    }
+
+    static void putPuzzle(ByteBuffer buffer, Puzzle puzzle) {
+        for (int index = 0; index < CELLS; index++)
+            buffer.put((byte) puzzle.getGiven(index / SudokuGenerator.GRID_SIZE, index % SudokuGenerator.GRID_SIZE));
+        for (int index = 0; index < CELLS; index++)
+            buffer.put((byte) puzzle.getSolution(index / SudokuGenerator.GRID_SIZE,
+                    index % SudokuGenerator.GRID_SIZE));
+    }
+
+    static Puzzle getPuzzle(ByteBuffer buffer) {
+        int[][] givens = new int[SudokuGenerator.GRID_SIZE][SudokuGenerator.GRID_SIZE];
+        int[][] solution = new int[SudokuGenerator.GRID_SIZE][SudokuGenerator.GRID_SIZE];
+        for (int index = 0; index < CELLS; index++)
+            givens[index / SudokuGenerator.GRID_SIZE][index % SudokuGenerator.GRID_SIZE] = buffer.get();
+        for (int index = 0; index < CELLS; index++)
+            solution[index / SudokuGenerator.GRID_SIZE][index % SudokuGenerator.GRID_SIZE] = buffer.get();
+        return new Puzzle(givens, solution);
+    }
+}
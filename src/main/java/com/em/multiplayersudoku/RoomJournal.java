@@ -0,0 +1,512 @@
+package com.em.multiplayersudoku;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.em.multiplayersudoku.domain.Difficulty;
+import com.em.multiplayersudoku.domain.Room;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Durable log of room changes on this node, so games survive a restart.
+ * <p>
+ * Room shards only encode a small record and queue it; a single writer thread
+ * appends records to memory-mapped segment files and forces them to disk at
+ * most every {@code sudoku.journal.fsync-interval-ms}, so an action never waits
+ * for the disk. A crash loses at most that window.
+ * <p>
+ * Records hold the effect of an applied action (a cell value, a seat taken, a
+ * puzzle dealt) rather than the action itself, because whether an action is
+ * accepted depends on wall-clock cooldowns. Each record carries the room's
+ * journal sequence number. A snapshot rolls to a new segment, captures every
+ * room on its shard and then deletes the older segments; recovery loads the
+ * snapshot and replays only newer records, skipping those a room's snapshot
+ * already reflects. Recovery time therefore follows the number of live rooms
+ * plus one snapshot interval of records, not total history.
+ */
+@Component
+public class RoomJournal {
+    private static final Logger logger = LoggerFactory.getLogger(RoomJournal.class);
+
+    // record types
+    private static final byte CREATE = 1;
+    private static final byte SEAT = 2;
+    private static final byte LEAVE = 3;
+    private static final byte START = 4;
+    private static final byte CELL = 5;
+    private static final byte SOLUTION = 6;
+    private static final byte FINISH = 7;
+    private static final byte REMOVE = 8;
+
+    // type, room code, journal sequence
+    private static final int HEADER_SIZE = 1 + RoomCodeAllocator.CODE_LENGTH + 8;
+    // length and CRC32C in front of each record
+    private static final int FRAME_SIZE = 8;
+    private static final int CELLS = SudokuGenerator.GRID_SIZE * SudokuGenerator.GRID_SIZE;
+    private static final Difficulty[] DIFFICULTIES = Difficulty.values();
+
+    private static final int SNAPSHOT_MAGIC = 0x534A4E31; // "SJN1"
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final long CAPTURE_TIMEOUT_SECONDS = 30;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final long fsyncIntervalMillis;
+    private final long snapshotIntervalMillis;
+
+    @Autowired
+    private RoomStore roomStore;
+
+    @Autowired
+    private RoomExecutor roomExecutor;
+
+    private final LinkedBlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+    // set by the snapshotter, completed by the writer with the first segment number after the roll
+    private final AtomicReference<CompletableFuture<Long>> rollRequest = new AtomicReference<>();
+    private volatile boolean running;
+    private long nextSegmentNumber;
+    private Thread writer;
+    private ScheduledExecutorService snapshotter;
+
+    // writer thread only
+    private MappedByteBuffer segment;
+    private long segmentNumber;
+    private boolean dirty;
+    private long lastForce;
+    private final CRC32C crc = new CRC32C();
+
+    public RoomJournal(@Value("${sudoku.journal.enabled:false}") boolean enabled,
+            @Value("${sudoku.journal.directory:data/journal}") Path directory,
+            @Value("${sudoku.journal.segment-size:16MB}") DataSize segmentSize,
+            @Value("${sudoku.journal.fsync-interval-ms:50}") long fsyncIntervalMillis,
+            @Value("${sudoku.journal.snapshot-interval:5m}") Duration snapshotInterval) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentSize = (int) Math.max(64 * 1024, Math.min(segmentSize.toBytes(), Integer.MAX_VALUE));
+        this.fsyncIntervalMillis = Math.max(1, fsyncIntervalMillis);
+        this.snapshotIntervalMillis = snapshotInterval.toMillis();
+    }
+
+    // records queued for the writer
+    public int getPendingRecords() {
+        return queue.size();
+    }
+
+    // Any thread: creation carries no sequence number, it only applies to a code not already in use
+    public void roomCreated(Room room) {
+        if (!running)
+            return;
+        ByteBuffer record = record(CREATE, room, 0, 10);
+        record.put((byte) room.getDifficulty().ordinal());
+        record.putInt(room.getRemoveThreshold());
+        record.putInt(room.getCooldownSeconds());
+        record.put((byte) room.getMaxPlayers());
+        queue.add(record.array());
+    }
+
+    // The methods below must run on the room's shard
+
+    public void seated(Room room, int seat) {
+        seatRecord(SEAT, room, seat);
+    }
+
+    public void left(Room room, int seat) {
+        seatRecord(LEAVE, room, seat);
+    }
+
+    public void started(Room room) {
+        if (!running)
+            return;
+        ByteBuffer record = record(START, room, room.nextJournalSequence(), 2 * CELLS);
+        RoomImage.putPuzzle(record, room.getPuzzle());
+        queue.add(record.array());
+    }
+
+    public void cellChanged(Room room, int seat, int row, int col, int value) {
+        if (!running)
+            return;
+        ByteBuffer record = record(CELL, room, room.nextJournalSequence(), 3);
+        record.put((byte) seat);
+        record.put((byte) (row * SudokuGenerator.GRID_SIZE + col));
+        record.put((byte) value);
+        queue.add(record.array());
+    }
+
+    public void solutionFilled(Room room, int seat) {
+        seatRecord(SOLUTION, room, seat);
+    }
+
+    public void finished(Room room) {
+        if (running)
+            queue.add(record(FINISH, room, room.nextJournalSequence(), 0).array());
+    }
+
+    public void roomRemoved(Room room) {
+        if (running)
+            queue.add(record(REMOVE, room, room.nextJournalSequence(), 0).array());
+    }
+
+    private void seatRecord(byte type, Room room, int seat) {
+        if (!running)
+            return;
+        ByteBuffer record = record(type, room, room.nextJournalSequence(), 1);
+        record.put((byte) seat);
+        queue.add(record.array());
+    }
+
+    private static ByteBuffer record(byte type, Room room, long sequence, int payloadSize) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payloadSize);
+        record.put(type);
+        RoomImage.putCode(record, room.getCode());
+        record.putLong(sequence);
+        return record;
+    }
+
+    /**
+     * Rebuilds the rooms in the journal directory from the last snapshot and the
+     * segments written after it. Call once, before {@link #start()}.
+     */
+    public List<Room> recover() {
+        if (!enabled)
+            return List.of();
+        long started = System.nanoTime();
+        Map<String, RoomImage> images = new HashMap<>();
+        int replayed = 0;
+        try {
+            Files.createDirectories(directory);
+            long base = readSnapshot(images);
+            int fromSnapshot = images.size();
+            nextSegmentNumber = base;
+            for (long number : segmentNumbers()) {
+                if (number < base) {
+                    // left over from a crash between writing a snapshot and deleting what it covers
+                    Files.deleteIfExists(segmentPath(number));
+                    continue;
+                }
+                replayed += replay(number, images);
+                nextSegmentNumber = number + 1;
+            }
+            logger.info("Recovered {} rooms ({} from snapshot, {} journal records) in {} ms", images.size(),
+                    fromSnapshot, replayed, (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot recover room journal from " + directory, e);
+        }
+        List<Room> rooms = new ArrayList<>(images.size());
+        for (RoomImage image : images.values()) {
+            rooms.add(image.toRoom());
+        }
+        return rooms;
+    }
+
+    /**
+     * Opens a fresh segment, starts the writer and takes the first snapshot right
+     * away, which folds whatever was recovered into it.
+     */
+    public void start() {
+        if (!enabled)
+            return;
+        try {
+            openSegment(nextSegmentNumber);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open room journal in " + directory, e);
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "room-journal");
+        writer.setDaemon(true);
+        writer.start();
+        snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "room-journal-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotter.scheduleWithFixedDelay(this::snapshot, 0, snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (!running)
+            return;
+        snapshotter.shutdownNow();
+        running = false; // the writer drains the queue and forces before it exits
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void writeLoop() {
+        List<byte[]> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                byte[] record = queue.poll(fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+                if (record != null) {
+                    append(record);
+                    queue.drainTo(batch);
+                    for (byte[] next : batch) {
+                        append(next);
+                    }
+                    batch.clear();
+                }
+                if (dirty && System.currentTimeMillis() - lastForce >= fsyncIntervalMillis)
+                    force();
+                CompletableFuture<Long> roll = rollRequest.getAndSet(null);
+                if (roll != null) {
+                    force();
+                    openSegment(segmentNumber + 1);
+                    roll.complete(segmentNumber);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException | RuntimeException e) {
+                batch.clear();
+                logger.error("Room journal write failed", e);
+            }
+        }
+        force();
+    }
+
+    private void append(byte[] record) throws IOException {
+        if (segment.remaining() < FRAME_SIZE + record.length) {
+            force();
+            openSegment(segmentNumber + 1);
+        }
+        crc.reset();
+        crc.update(record);
+        segment.putInt(record.length);
+        segment.putInt((int) crc.getValue());
+        segment.put(record);
+        dirty = true;
+    }
+
+    private void force() {
+        if (dirty)
+            segment.force();
+        dirty = false;
+        lastForce = System.currentTimeMillis();
+    }
+
+    private void openSegment(long number) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping outlives the channel; the file starts zero-filled, so a zero length ends the segment
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segmentNumber = number;
+        dirty = false;
+        lastForce = System.currentTimeMillis();
+    }
+
+    private void snapshot() {
+        try {
+            long started = System.nanoTime();
+            // every record queued after the roll lands in segment base or later
+            CompletableFuture<Long> roll = new CompletableFuture<>();
+            rollRequest.set(roll);
+            long base = roll.get(CAPTURE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            List<Room> rooms = List.copyOf(roomStore.getLocalRooms());
+            byte[][] images = new byte[rooms.size()][];
+            CountDownLatch captured = new CountDownLatch(rooms.size());
+            for (int i = 0; i < rooms.size(); i++) {
+                Room room = rooms.get(i);
+                int index = i;
+                roomExecutor.execute(room.getCode(), () -> {
+                    try {
+                        if (roomStore.getLocal(room.getCode()) == room)
+                            images[index] = RoomImage.encode(room);
+                    } finally {
+                        captured.countDown();
+                    }
+                });
+            }
+            if (!captured.await(CAPTURE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Room journal snapshot timed out waiting for room shards, keeping older segments");
+                return;
+            }
+            int size = writeSnapshot(base, images);
+            for (long number : segmentNumbers()) {
+                if (number < base)
+                    Files.deleteIfExists(segmentPath(number));
+            }
+            logger.debug("Room journal snapshot: {} rooms, {} bytes in {} ms", rooms.size(), size,
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Room journal snapshot failed", e);
+        }
+    }
+
+    // magic, base segment, room count, [length, room image]..., CRC32C of all of it
+    private int writeSnapshot(long base, byte[][] images) throws IOException {
+        int size = 4 + 8 + 4 + 4;
+        int count = 0;
+        for (byte[] image : images) {
+            if (image != null) {
+                size += 4 + image.length;
+                count++;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(SNAPSHOT_MAGIC);
+        buffer.putLong(base);
+        buffer.putInt(count);
+        for (byte[] image : images) {
+            if (image != null) {
+                buffer.putInt(image.length);
+                buffer.put(image);
+            }
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) checksum.getValue());
+        buffer.flip();
+
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        return size;
+    }
+
+    // Returns the first segment not covered by the snapshot, 0 without one
+    private long readSnapshot(Map<String, RoomImage> images) throws IOException {
+        Path path = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(path))
+            return 0;
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.array(), 0, Math.max(0, buffer.limit() - 4));
+        if (buffer.limit() < 20 || buffer.getInt(0) != SNAPSHOT_MAGIC
+                || buffer.getInt(buffer.limit() - 4) != (int) checksum.getValue()) {
+            logger.warn("Ignoring damaged room journal snapshot {}", path);
+            return 0;
+        }
+        buffer.getInt(); // magic
+        long base = buffer.getLong();
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt();
+            RoomImage image = RoomImage.decode(buffer.slice(buffer.position(), length));
+            buffer.position(buffer.position() + length);
+            images.put(image.code, image);
+        }
+        return base;
+    }
+
+    // Applies a segment's records; stops at the end of the written part or at a torn record
+    private int replay(long number, Map<String, RoomImage> images) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segmentPath(number), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        CRC32C checksum = new CRC32C();
+        int applied = 0;
+        while (buffer.remaining() >= FRAME_SIZE) {
+            int length = buffer.getInt();
+            int expected = buffer.getInt();
+            if (length < HEADER_SIZE || length > buffer.remaining())
+                break;
+            ByteBuffer record = buffer.slice(buffer.position(), length);
+            checksum.reset();
+            checksum.update(record.duplicate());
+            if ((int) checksum.getValue() != expected) {
+                logger.warn("Torn record in room journal segment {}, ignoring the rest of it", number);
+                break;
+            }
+            buffer.position(buffer.position() + length);
+            apply(record, images);
+            applied++;
+        }
+        return applied;
+    }
+
+    private static void apply(ByteBuffer record, Map<String, RoomImage> images) {
+        byte type = record.get();
+        String code = RoomImage.getCode(record);
+        long sequence = record.getLong();
+        RoomImage image = images.get(code);
+        if (type == CREATE) {
+            if (image == null)
+                images.put(code, new RoomImage(code, DIFFICULTIES[record.get()], record.getInt(), record.getInt(),
+                        record.get()));
+            return;
+        }
+        // unknown rooms were removed before the snapshot; older records are already in it
+        if (image == null || sequence <= image.journalSequence)
+            return;
+        image.journalSequence = sequence;
+        switch (type) {
+            case SEAT:
+                image.seat(record.get());
+                break;
+            case LEAVE:
+                image.leave(record.get());
+                break;
+            case START:
+                image.start(RoomImage.getPuzzle(record));
+                break;
+            case CELL:
+                image.setCell(record.get(), record.get(), record.get());
+                break;
+            case SOLUTION:
+                image.fillSolution(record.get());
+                break;
+            case FINISH:
+                image.finish();
+                break;
+            case REMOVE:
+                images.remove(code);
+                break;
+            default:
+                logger.warn("Unknown room journal record type {}", type);
+        }
+    }
+
+    private List<Long> segmentNumbers() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith("journal-") && name.endsWith(".log"))
+                    .map(name -> Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("journal-%016d.log", number));
+    }
+}
@@ -1,64 +1,267 @@
 package com.em.multiplayersudoku;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import com.em.multiplayersudoku.domain.Difficulty;
 import com.em.multiplayersudoku.domain.Room;
+import com.em.multiplayersudoku.domain.RoomState;
+
+import jakarta.annotation.PostConstruct;
 
 @Service
 public class RoomService {
+    private static final Logger logger = LoggerFactory.getLogger(RoomService.class);
 
-    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+    private static final long EVICTION_TICK_MILLIS = 1000;
+    private static final int EVICTION_WHEEL_SIZE = 512; // ~8.5 minutes per rotation
 
-    public synchronized String createRoom(Difficulty difficulty, int removeThreshold, int cooldownSeconds) {
-        String code;
-        do {
-            code = generateRoomCode();
-        } while (rooms.containsKey(code));
+    // sessionId -> code of the room the session is seated in, for sessions connected to this node;
+    // the room itself may be owned by another node
+    private final Map<String, String> sessionRooms = new ConcurrentHashMap<>();
+    // sessionId -> room the session last asked to be seated in, until the seat is taken, the
+    // session leaves or the room goes; both maps change inside sessionRooms.compute for the
+    // session, so a leave never misses a seat
+    private final Map<String, String> requestedRooms = new ConcurrentHashMap<>();
+
+    // sessionId -> (subscriptionId -> room code) for spectator subscriptions on this node
+    private final Map<String, Map<String, String>> spectatorSubscriptions = new ConcurrentHashMap<>();
+
+    @Autowired
+    private RoomStore roomStore;
+
+    @Autowired
+    private RoomExecutor roomExecutor;
+
+    @Autowired
+    private RoomCodeAllocator roomCodeAllocator;
+
+    @Autowired
+    private RoomJournal roomJournal;
+
+    @Value("${sudoku.rooms.idle-timeout:30m}")
+    private Duration idleTimeout;
+
+    @Value("${sudoku.rooms.empty-timeout:2m}")
+    private Duration emptyTimeout;
+
+    @Value("${sudoku.rooms.finished-grace:5m}")
+    private Duration finishedGrace;
+
+    // One entry per live room at its earliest possible eviction time. Activity does
+    // not touch the wheel: a room that turns out to be alive when its entry comes
+    // due is simply scheduled again.
+    private final TimingWheel<Room> evictionWheel = new TimingWheel<>(EVICTION_TICK_MILLIS, EVICTION_WHEEL_SIZE,
+            System.currentTimeMillis());
 
-        Room room = new Room(code, difficulty, removeThreshold, cooldownSeconds);
-        rooms.put(code, room);
-        return code;
+    private final LongAdder idleEvictions = new LongAdder();
+    private final LongAdder emptyEvictions = new LongAdder();
+    private final LongAdder finishedEvictions = new LongAdder();
+
+    /**
+     * Brings back the rooms this node had before a restart, then starts journaling.
+     */
+    @PostConstruct
+    void recoverRooms() {
+        for (Room room : roomJournal.recover()) {
+            if (roomStore.add(room))
+                evictionWheel.schedule(room, evictionDeadline(room));
+        }
+        roomJournal.start();
+    }
+
+    public String createRoom(Difficulty difficulty, int removeThreshold, int cooldownSeconds, int maxPlayers) {
+        // codes only repeat after the allocator wraps, so this rarely loops
+        Room room;
+        do {
+            room = new Room(roomCodeAllocator.next(), difficulty, removeThreshold, cooldownSeconds, maxPlayers);
+        } while (!roomStore.add(room));
+        roomJournal.roomCreated(room);
+        evictionWheel.schedule(room, evictionDeadline(room));
+        return room.getCode();
     }
 
+    /**
+     * The room if this node owns it, otherwise null.
+     */
     public Room getRoom(String code) {
-        return rooms.get(code);
+        return roomStore.getLocal(code);
     }
 
-    public void removeRoom(String code) {
-        rooms.remove(code);
+    // Must run on the room's shard
+    public void removeRoom(Room room) {
+        if (roomStore.remove(room)) {
+            roomJournal.roomRemoved(room);
+            for (String sessionId : room.getPlayers()) {
+                sessionRooms.remove(sessionId, room.getCode());
+            }
+            for (Map.Entry<String, String> request : requestedRooms.entrySet()) {
+                if (request.getValue().equals(room.getCode()))
+                    sessionRooms.compute(request.getKey(), (id, seated) -> {
+                        requestedRooms.remove(id, room.getCode());
+                        return seated;
+                    });
+            }
+        }
     }
 
     public boolean roomExists(String code) {
-        return rooms.containsKey(code);
+        return roomStore.getOwner(code) != null;
     }
 
-    public void addPlayerToRoom(String code, String sessionId) {
-        Room room = rooms.get(code);
-        if (room != null)
-            room.addPlayer(sessionId);
+    /**
+     * Records that a session on this node asked for a seat (JOIN or START),
+     * before the owning shard tries to seat it.
+     */
+    public void requestSeat(String sessionId, String code) {
+        sessionRooms.compute(sessionId, (id, seated) -> {
+            requestedRooms.put(id, code);
+            return seated;
+        });
     }
 
-    public void removePlayerFromAllRooms(String sessionId) {
-        rooms.values().forEach(room -> room.removePlayer(sessionId));
+    /**
+     * Records the room a session on this node was seated in, if it is still the
+     * room the session last asked for. A session that left, or asked for another
+     * room, while the seat was being taken is not tracked there.
+     *
+     * @return the room the session has to leave: the one it was seated in
+     *         before, or this one if the seat is no longer wanted; null if none
+     */
+    public String trackSession(String sessionId, String code) {
+        String[] leave = new String[1];
+        sessionRooms.compute(sessionId, (id, seated) -> {
+            if (!requestedRooms.remove(id, code)) {
+                leave[0] = code;
+                return seated;
+            }
+            if (seated != null && !seated.equals(code))
+                leave[0] = seated;
+            return code;
+        });
+        return leave[0];
     }
 
-    // Find the room that contains the given sessionId
-    public Room findRoomBySessionId(String sessionId) {
-        for (Room room : rooms.values()) {
-            if (room.getPlayers().contains(sessionId)) {
-                return room;
-            }
+    /**
+     * Forgets a session on this node.
+     *
+     * @return the rooms to send its LEAVE to: the one it is seated in and one it
+     *         asked to join but may not be seated in yet
+     */
+    public List<String> untrackSession(String sessionId) {
+        List<String> rooms = new ArrayList<>(2);
+        sessionRooms.compute(sessionId, (id, seated) -> {
+            String requested = requestedRooms.remove(id);
+            if (seated != null)
+                rooms.add(seated);
+            if (requested != null && !requested.equals(seated))
+                rooms.add(requested);
+            return null;
+        });
+        return rooms;
+    }
+
+    public void trackSpectator(String sessionId, String subscriptionId, String code) {
+        spectatorSubscriptions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>()).put(subscriptionId, code);
+    }
+
+    /**
+     * @return the room the subscription was watching, or null if it is not a
+     *         spectator subscription
+     */
+    public String untrackSpectator(String sessionId, String subscriptionId) {
+        Map<String, String> subscriptions = spectatorSubscriptions.get(sessionId);
+        return (subscriptions != null && subscriptionId != null) ? subscriptions.remove(subscriptionId) : null;
+    }
+
+    /**
+     * Forgets every spectator subscription of a session.
+     *
+     * @return the rooms it was watching, one entry per subscription
+     */
+    public Collection<String> untrackSpectatorSession(String sessionId) {
+        Map<String, String> subscriptions = spectatorSubscriptions.remove(sessionId);
+        return (subscriptions != null) ? subscriptions.values() : List.of();
+    }
+
+    /**
+     * Advances the eviction wheel; each due room is re-checked on its own shard.
+     */
+    @Scheduled(fixedDelay = EVICTION_TICK_MILLIS)
+    public void evictExpiredRooms() {
+        evictionWheel.advance(System.currentTimeMillis(),
+                room -> roomExecutor.execute(room.getCode(), () -> checkEviction(room)));
+    }
+
+    // Must run on the room's shard
+    private void checkEviction(Room room) {
+        if (roomStore.getLocal(room.getCode()) != room)
+            return; // already removed
+        long now = System.currentTimeMillis();
+        long deadline = evictionDeadline(room);
+        if (deadline > now) {
+            evictionWheel.schedule(room, deadline);
+            return;
+        }
+        if (room.getState() == RoomState.FINISHED && room.getFinishedAt() + finishedGrace.toMillis() <= now) {
+            finishedEvictions.increment();
+        } else if (room.getEmptySince() > 0 && room.getEmptySince() + emptyTimeout.toMillis() <= now) {
+            emptyEvictions.increment();
+        } else {
+            idleEvictions.increment();
+        }
+        removeRoom(room);
+        logger.debug("Evicted room {} ({} players, {})", room.getCode(), room.getPlayerCount(), room.getState());
+    }
+
+    // Earliest time any of the three timeouts can expire for the room
+    private long evictionDeadline(Room room) {
+        long deadline = room.getLastActivity() + idleTimeout.toMillis();
+        if (room.getEmptySince() > 0)
+            deadline = Math.min(deadline, room.getEmptySince() + emptyTimeout.toMillis());
+        if (room.getState() == RoomState.FINISHED)
+            deadline = Math.min(deadline, room.getFinishedAt() + finishedGrace.toMillis());
+        return deadline;
+    }
+
+    public int getRoomCount() {
+        return roomStore.getLocalRoomCount();
+    }
+
+    // spectators of the rooms this node owns, wherever they are connected
+    public int getSpectatorCount() {
+        int spectators = 0;
+        for (Room room : roomStore.getLocalRooms()) {
+            spectators += room.getSpectatorCount();
         }
-        return null;
+        return spectators;
     }
 
-    private String generateRoomCode() {
-        return java.util.UUID.randomUUID().toString().substring(0, 4).toUpperCase();
+    public int getSeatedPlayerCount() {
+        return sessionRooms.size();
     }
 
-    // … persistence or cleanup methods as needed …
+    public long getIdleEvictions() {
+        return idleEvictions.sum();
+    }
+
+    public long getEmptyEvictions() {
+        return emptyEvictions.sum();
+    }
+
+    public long getFinishedEvictions() {
+        return finishedEvictions.sum();
+    }
 }
@@ -0,0 +1,68 @@
+package com.em.multiplayersudoku;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import org.springframework.messaging.Message;
+
+import com.em.multiplayersudoku.domain.Room;
+import com.em.multiplayersudoku.domain.RoomOperation;
+
+/**
+ * Where rooms live. Every room is owned by exactly one node, which holds its
+ * {@link Room} and runs all of its work; other nodes only know the owner and
+ * hand operations over to it. Selected with {@code sudoku.room-store}.
+ */
+public interface RoomStore {
+
+    String getNodeId();
+
+    /**
+     * Claims the room's code for this node.
+     *
+     * @return false if the code is already taken anywhere
+     */
+    boolean add(Room room);
+
+    /**
+     * The room if this node owns it, otherwise null.
+     */
+    Room getLocal(String code);
+
+    /**
+     * Node that owns the room, or null if there is no such room.
+     */
+    String getOwner(String code);
+
+    /**
+     * Drops the room if it is still the one stored under its code.
+     */
+    boolean remove(Room room);
+
+    /**
+     * Live view of the rooms this node owns.
+     */
+    Collection<Room> getLocalRooms();
+
+    int getLocalRoomCount();
+
+    /**
+     * Handler that applies operations for rooms owned by this node; called for
+     * operations forwarded from other nodes.
+     */
+    void setOperationHandler(Consumer<RoomOperation> handler);
+
+    /**
+     * Hands an operation to the node that owns its room.
+     *
+     * @return false if no node owns the room
+     */
+    boolean forward(RoomOperation operation);
+
+    /**
+     * Called for each message published to this node's broker, so stores that
+     * span nodes without a shared broker can deliver it to subscribers elsewhere.
+     */
+    default void replicate(Message<?> message) {
+    }
+}
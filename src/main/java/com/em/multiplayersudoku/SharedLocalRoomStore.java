@@ -0,0 +1,134 @@
+package com.em.multiplayersudoku;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import com.em.multiplayersudoku.domain.Room;
+import com.em.multiplayersudoku.domain.RoomOperation;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Stand-in for a shared room store when several application contexts run in
+ * one JVM (integration tests). Room ownership is kept in a JVM-wide map,
+ * operations for a room owned by another context are handed straight to that
+ * context, and broker messages are copied into every other context's broker
+ * channel in place of a broker relay.
+ */
+@Component
+@ConditionalOnProperty(name = "sudoku.room-store", havingValue = "shared-local")
+public class SharedLocalRoomStore implements RoomStore {
+    // marks a message copied from another node so it is not copied again
+    static final String REPLICATED_HEADER = "sudokuReplicated";
+
+    private static final Map<String, SharedLocalRoomStore> nodes = new ConcurrentHashMap<>();
+    // room code -> owning node id
+    private static final Map<String, String> owners = new ConcurrentHashMap<>();
+
+    private final String nodeId;
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+    private volatile Consumer<RoomOperation> operationHandler;
+
+    @Autowired
+    @Lazy
+    @Qualifier("brokerChannel")
+    private MessageChannel brokerChannel;
+
+    public SharedLocalRoomStore(@Value("${sudoku.node-id:}") String nodeId) {
+        this.nodeId = nodeId.isEmpty() ? UUID.randomUUID().toString().substring(0, 8) : nodeId;
+        if (nodes.putIfAbsent(this.nodeId, this) != null)
+            throw new IllegalStateException("Duplicate node id " + this.nodeId);
+    }
+
+    @PreDestroy
+    void leave() {
+        nodes.remove(nodeId, this);
+        owners.values().removeIf(nodeId::equals);
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public boolean add(Room room) {
+        if (owners.putIfAbsent(room.getCode(), nodeId) != null)
+            return false;
+        rooms.put(room.getCode(), room);
+        return true;
+    }
+
+    @Override
+    public Room getLocal(String code) {
+        return rooms.get(code);
+    }
+
+    @Override
+    public String getOwner(String code) {
+        return owners.get(code);
+    }
+
+    @Override
+    public boolean remove(Room room) {
+        if (!rooms.remove(room.getCode(), room))
+            return false;
+        owners.remove(room.getCode(), nodeId);
+        return true;
+    }
+
+    @Override
+    public Collection<Room> getLocalRooms() {
+        return Collections.unmodifiableCollection(rooms.values());
+    }
+
+    @Override
+    public int getLocalRoomCount() {
+        return rooms.size();
+    }
+
+    @Override
+    public void setOperationHandler(Consumer<RoomOperation> handler) {
+        this.operationHandler = handler;
+    }
+
+    @Override
+    public boolean forward(RoomOperation operation) {
+        String owner = owners.get(operation.getRoomCode());
+        SharedLocalRoomStore node = (owner != null) ? nodes.get(owner) : null;
+        if (node == null || node.operationHandler == null)
+            return false;
+        node.operationHandler.accept(operation);
+        return true;
+    }
+
+    @Override
+    public void replicate(Message<?> message) {
+        if (message.getHeaders().containsKey(REPLICATED_HEADER))
+            return;
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        // /user/ messages are resolved to a /queue/...-user{session} copy first, which is the one to share
+        if (destination == null || destination.startsWith("/user/"))
+            return;
+        Message<?> copy = MessageBuilder.fromMessage(message).setHeader(REPLICATED_HEADER, true).build();
+        for (SharedLocalRoomStore node : nodes.values()) {
+            if (node != this)
+                node.brokerChannel.send(copy);
+        }
+    }
+}
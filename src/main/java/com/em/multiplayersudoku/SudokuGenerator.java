@@ -1,17 +1,27 @@
 package com.em.multiplayersudoku;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.Random;
 
+import com.em.multiplayersudoku.domain.Difficulty;
+import com.em.multiplayersudoku.domain.Puzzle;
+
 /**
  * Utility class for generating and solving Sudoku boards.
  */
 public class SudokuGenerator {
     public static final int GRID_SIZE = 9;
     public static final int SUBGRID_SIZE = 3;
-    private final Random random = new Random();
+    private final Random random;
+    private final SudokuSolver solver = new SudokuSolver();
+
+    public SudokuGenerator() {
+        this.random = new Random();
+    }
+
+    // Fixed seed: the same sequence of boards every run (tests, benchmarks)
+    public SudokuGenerator(long seed) {
+        this.random = new Random(seed);
+    }
 
     /**
      * Generates a new Sudoku puzzle with a unique solution.
@@ -27,6 +37,51 @@ public class SudokuGenerator {
         return puzzle;
     }
 
+    /**
+     * Generates a new Sudoku puzzle together with its solution.
+     *
+     * @param clues Number of cells to leave as clues (difficulty control)
+     */
+    public Puzzle generate(int clues) {
+        return generate(clues, null);
+    }
+
+    /**
+     * Generates a new Sudoku puzzle for a difficulty level.
+     */
+    public Puzzle generate(Difficulty difficulty) {
+        return generate(difficulty.getMinClues(), difficulty);
+    }
+
+    private Puzzle generate(int clues, Difficulty difficulty) {
+        PuzzleGenerationEvent event = new PuzzleGenerationEvent();
+        event.begin();
+        long nodes = solver.getNodeCount();
+        int[][] solution = new int[GRID_SIZE][GRID_SIZE];
+        fillBoard(solution);
+        int[][] puzzle = copyBoard(solution);
+        removeNumbers(puzzle, clues);
+        if (event.shouldCommit()) {
+            event.difficulty = (difficulty != null) ? difficulty.name() : null;
+            event.requestedClues = clues;
+            event.clues = countClues(puzzle);
+            event.solverNodes = solver.getNodeCount() - nodes;
+            event.commit();
+        }
+        return new Puzzle(puzzle, solution);
+    }
+
+    private static int countClues(int[][] board) {
+        int clues = 0;
+        for (int[] row : board) {
+            for (int value : row) {
+                if (value != 0)
+                    clues++;
+            }
+        }
+        return clues;
+    }
+
     /**
      * Generates a new Sudoku puzzle as a Cell[][] board with statuses.
      *
@@ -53,25 +108,9 @@ public class SudokuGenerator {
      * Generates a fully filled valid Sudoku board.
      */
     public boolean fillBoard(int[][] board) {
-        List<Integer> numbers = new ArrayList<>();
-        for (int i = 1; i <= GRID_SIZE; i++)
-            numbers.add(i);
-        for (int row = 0; row < GRID_SIZE; row++) {
-            for (int col = 0; col < GRID_SIZE; col++) {
-                if (board[row][col] == 0) {
-                    Collections.shuffle(numbers, random);
-                    for (int num : numbers) {
-                        if (isSafe(board, row, col, num)) {
-                            board[row][col] = num;
-                            if (fillBoard(board))
-                                return true;
-                            board[row][col] = 0;
-                        }
-                    }
-                    return false;
-                }
-            }
-        }
+        if (!solver.load(board) || !solver.solve(random))
+            return false;
+        solver.copyTo(board);
         return true;
     }
 
@@ -81,24 +120,29 @@ public class SudokuGenerator {
      */
     public void removeNumbers(int[][] board, int clues) {
         int cellsToRemove = GRID_SIZE * GRID_SIZE - clues;
-        List<int[]> positions = new ArrayList<>();
-        for (int row = 0; row < GRID_SIZE; row++) {
-            for (int col = 0; col < GRID_SIZE; col++) {
-                positions.add(new int[] { row, col });
-            }
+        int[] positions = new int[GRID_SIZE * GRID_SIZE];
+        for (int i = 0; i < positions.length; i++)
+            positions[i] = i;
+        for (int i = positions.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = positions[i];
+            positions[i] = positions[j];
+            positions[j] = tmp;
         }
-        Collections.shuffle(positions, random);
+        solver.load(board);
         int removed = 0;
-        for (int i = 0; i < positions.size() && removed < cellsToRemove; i++) {
-            int[] pos = positions.get(i);
-            int row = pos[0];
-            int col = pos[1];
+        for (int i = 0; i < positions.length && removed < cellsToRemove; i++) {
+            int row = positions[i] / GRID_SIZE;
+            int col = positions[i] % GRID_SIZE;
             int backup = board[row][col];
-            board[row][col] = 0;
+            if (backup == 0)
+                continue;
+            solver.set(row, col, 0);
             // Check for unique solution
-            if (countSolutions(copyBoard(board), 2) != 1) {
-                board[row][col] = backup; // revert if not unique
+            if (solver.countSolutions(2) != 1) {
+                solver.set(row, col, backup); // revert if not unique
             } else {
+                board[row][col] = 0;
                 removed++;
             }
         }
@@ -109,50 +153,9 @@ public class SudokuGenerator {
      * Returns as soon as more than maxSolutions are found.
      */
     public int countSolutions(int[][] board, int maxSolutions) {
-        return countSolutionsHelper(board, 0, 0, maxSolutions, new int[] { 0 });
-    }
-
-    private int countSolutionsHelper(int[][] board, int row, int col, int maxSolutions, int[] count) {
-        if (row == GRID_SIZE) {
-            count[0]++;
-            return count[0];
-        }
-        if (count[0] > maxSolutions)
-            return count[0];
-        int nextRow = (col == GRID_SIZE - 1) ? row + 1 : row;
-        int nextCol = (col == GRID_SIZE - 1) ? 0 : col + 1;
-        if (board[row][col] != 0) {
-            return countSolutionsHelper(board, nextRow, nextCol, maxSolutions, count);
-        }
-        for (int num = 1; num <= GRID_SIZE; num++) {
-            if (isSafe(board, row, col, num)) {
-                board[row][col] = num;
-                countSolutionsHelper(board, nextRow, nextCol, maxSolutions, count);
-                board[row][col] = 0;
-                if (count[0] > maxSolutions)
-                    return count[0];
-            }
-        }
-        return count[0];
-    }
-
-    /**
-     * Checks if it's safe to place a number at the given position.
-     */
-    private boolean isSafe(int[][] board, int row, int col, int num) {
-        for (int i = 0; i < GRID_SIZE; i++) {
-            if (board[row][i] == num || board[i][col] == num)
-                return false;
-        }
-        int boxRow = row - row % SUBGRID_SIZE;
-        int boxCol = col - col % SUBGRID_SIZE;
-        for (int i = 0; i < SUBGRID_SIZE; i++) {
-            for (int j = 0; j < SUBGRID_SIZE; j++) {
-                if (board[boxRow + i][boxCol + j] == num)
-                    return false;
-            }
-        }
-        return true;
+        if (!solver.load(board))
+            return 0;
+        return solver.countSolutions(maxSolutions + 1);
     }
 
     /**
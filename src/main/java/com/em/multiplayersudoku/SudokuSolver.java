@@ -0,0 +1,249 @@
+package com.em.multiplayersudoku;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Bitmask constraint solver used by {@link SudokuGenerator}.
+ * <p>
+ * Keeps one "used digits" mask per row, column and box, so the candidates of a
+ * cell are a single OR/NOT instead of a row/column/box scan. The search always
+ * branches on the most-constrained empty cell (MRV) and works on preallocated
+ * arrays only, so solving and counting do not allocate.
+ * <p>
+ * Instances are not thread-safe; use one per generator.
+ */
+public class SudokuSolver {
+    private static final int GRID_SIZE = SudokuGenerator.GRID_SIZE;
+    private static final int SUBGRID_SIZE = SudokuGenerator.SUBGRID_SIZE;
+    private static final int CELL_COUNT = GRID_SIZE * GRID_SIZE;
+    private static final int ALL_DIGITS = (1 << GRID_SIZE) - 1; // bit (d - 1) set for digit d
+
+    private static final int[] ROW_OF = new int[CELL_COUNT];
+    private static final int[] COL_OF = new int[CELL_COUNT];
+    private static final int[] BOX_OF = new int[CELL_COUNT];
+
+    static {
+        for (int i = 0; i < CELL_COUNT; i++) {
+            int row = i / GRID_SIZE;
+            int col = i % GRID_SIZE;
+            ROW_OF[i] = row;
+            COL_OF[i] = col;
+            BOX_OF[i] = (row / SUBGRID_SIZE) * SUBGRID_SIZE + col / SUBGRID_SIZE;
+        }
+    }
+
+    private final int[] cells = new int[CELL_COUNT]; // 1-9, or 0 for empty
+    private final int[] rowUsed = new int[GRID_SIZE];
+    private final int[] colUsed = new int[GRID_SIZE];
+    private final int[] boxUsed = new int[GRID_SIZE];
+
+    // Empty cell indexes; entries [0, depth) are assigned during a search.
+    private final int[] empties = new int[CELL_COUNT];
+    private int emptyCount;
+
+    // Search parameters for the current run
+    private Random random; // null = ascending digit order
+    private int limit;
+    private boolean keepSolution;
+    private int solutions;
+
+    private long nodeCount; // search calls since construction
+
+    /**
+     * Loads a board (0 = empty) into the solver.
+     *
+     * @return false if the given digits already conflict with each other
+     */
+    public boolean load(int[][] board) {
+        clearAll();
+        for (int row = 0; row < GRID_SIZE; row++) {
+            for (int col = 0; col < GRID_SIZE; col++) {
+                int value = board[row][col];
+                if (value != 0 && !place(row * GRID_SIZE + col, value)) {
+                    return false;
+                }
+            }
+        }
+        rebuildEmpties();
+        return true;
+    }
+
+    /**
+     * Resets the solver to an empty board.
+     */
+    public void clearAll() {
+        Arrays.fill(cells, 0);
+        Arrays.fill(rowUsed, 0);
+        Arrays.fill(colUsed, 0);
+        Arrays.fill(boxUsed, 0);
+        rebuildEmpties();
+    }
+
+    /**
+     * Sets a single cell. Returns false (and leaves the board unchanged) if the
+     * digit conflicts with its row, column or box.
+     */
+    public boolean set(int row, int col, int value) {
+        int index = row * GRID_SIZE + col;
+        int previous = cells[index];
+        if (previous != 0) {
+            unplace(index);
+        }
+        if (value != 0 && !place(index, value)) {
+            if (previous != 0)
+                place(index, previous);
+            return false;
+        }
+        rebuildEmpties();
+        return true;
+    }
+
+    public int get(int row, int col) {
+        return cells[row * GRID_SIZE + col];
+    }
+
+    /**
+     * Counts solutions of the loaded board, stopping once {@code limit} have been
+     * found. The loaded board is left unchanged.
+     */
+    public int countSolutions(int limit) {
+        this.random = null;
+        this.limit = limit;
+        this.keepSolution = false;
+        this.solutions = 0;
+        if (limit > 0) {
+            search(0);
+        }
+        return solutions;
+    }
+
+    /**
+     * Completes the loaded board with a solution, trying digits in random order so
+     * that an empty board yields a random full grid.
+     *
+     * @return false if the loaded board has no solution
+     */
+    public boolean solve(Random random) {
+        this.random = random;
+        this.limit = 1;
+        this.keepSolution = true;
+        this.solutions = 0;
+        search(0);
+        this.random = null;
+        rebuildEmpties();
+        return solutions > 0;
+    }
+
+    /**
+     * Search nodes visited by this solver so far, across all runs.
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Copies the solver state into a board.
+     */
+    public void copyTo(int[][] board) {
+        for (int row = 0; row < GRID_SIZE; row++) {
+            System.arraycopy(cells, row * GRID_SIZE, board[row], 0, GRID_SIZE);
+        }
+    }
+
+    /**
+     * Returns true when the search should stop.
+     */
+    private boolean search(int depth) {
+        nodeCount++;
+        if (depth == emptyCount) {
+            solutions++;
+            return solutions >= limit;
+        }
+
+        // MRV: pick the empty cell with the fewest candidates
+        int best = depth;
+        int bestCandidates = 0;
+        int bestCount = GRID_SIZE + 1;
+        for (int i = depth; i < emptyCount; i++) {
+            int candidates = candidates(empties[i]);
+            int count = Integer.bitCount(candidates);
+            if (count < bestCount) {
+                best = i;
+                bestCandidates = candidates;
+                bestCount = count;
+                if (count <= 1)
+                    break;
+            }
+        }
+        if (bestCount == 0)
+            return false;
+
+        int index = empties[best];
+        empties[best] = empties[depth];
+        empties[depth] = index;
+
+        int candidates = bestCandidates;
+        while (candidates != 0) {
+            int bit;
+            if (random == null) {
+                bit = candidates & -candidates;
+            } else {
+                bit = nthBit(candidates, random.nextInt(Integer.bitCount(candidates)));
+            }
+            candidates &= ~bit;
+            assign(index, bit);
+            if (search(depth + 1)) {
+                if (!keepSolution)
+                    unassign(index, bit);
+                return true;
+            }
+            unassign(index, bit);
+        }
+        return false;
+    }
+
+    private int candidates(int index) {
+        return ~(rowUsed[ROW_OF[index]] | colUsed[COL_OF[index]] | boxUsed[BOX_OF[index]]) & ALL_DIGITS;
+    }
+
+    private boolean place(int index, int value) {
+        int bit = 1 << (value - 1);
+        if ((candidates(index) & bit) == 0)
+            return false;
+        assign(index, bit);
+        return true;
+    }
+
+    private void unplace(int index) {
+        unassign(index, 1 << (cells[index] - 1));
+    }
+
+    private void assign(int index, int bit) {
+        cells[index] = Integer.numberOfTrailingZeros(bit) + 1;
+        rowUsed[ROW_OF[index]] |= bit;
+        colUsed[COL_OF[index]] |= bit;
+        boxUsed[BOX_OF[index]] |= bit;
+    }
+
+    private void unassign(int index, int bit) {
+        cells[index] = 0;
+        rowUsed[ROW_OF[index]] &= ~bit;
+        colUsed[COL_OF[index]] &= ~bit;
+        boxUsed[BOX_OF[index]] &= ~bit;
+    }
+
+    private void rebuildEmpties() {
+        emptyCount = 0;
+        for (int i = 0; i < CELL_COUNT; i++) {
+            if (cells[i] == 0)
+                empties[emptyCount++] = i;
+        }
+    }
+
+    private static int nthBit(int mask, int n) {
+        for (int i = 0; i < n; i++)
+            mask &= mask - 1;
+        return mask & -mask;
+    }
+}
@@ -0,0 +1,82 @@
+package com.em.multiplayersudoku;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel: entries are hashed into a bucket by deadline tick, and
+ * each {@link #advance(long, Consumer)} only visits the buckets for the ticks
+ * that passed. Deadlines further out than one rotation stay in their bucket and
+ * are skipped until the rotation that reaches them.
+ * <p>
+ * Deadlines are not updated in place: callers re-check an expired item and
+ * {@link #schedule(Object, long)} it again if it is still alive.
+ */
+public class TimingWheel<T> {
+    private final long tickMillis;
+    private final ArrayDeque<Entry<T>>[] buckets;
+    private final int mask;
+    private long currentTick; // last tick processed
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (Integer.bitCount(wheelSize) != 1)
+            throw new IllegalArgumentException("wheelSize must be a power of two: " + wheelSize);
+        this.tickMillis = Math.max(1, tickMillis);
+        this.buckets = new ArrayDeque[wheelSize];
+        for (int i = 0; i < wheelSize; i++)
+            buckets[i] = new ArrayDeque<>();
+        this.mask = wheelSize - 1;
+        this.currentTick = startMillis / this.tickMillis;
+    }
+
+    public synchronized void schedule(T item, long deadlineMillis) {
+        // round up so the entry is due by the time its tick is processed, and never
+        // hash into a bucket that was already processed for this rotation
+        long tick = Math.max((deadlineMillis + tickMillis - 1) / tickMillis, currentTick + 1);
+        buckets[(int) (tick & mask)].add(new Entry<>(item, deadlineMillis));
+        size++;
+    }
+
+    /**
+     * Processes every tick up to {@code nowMillis} and hands due items to
+     * {@code expired}, outside the wheel lock.
+     */
+    public void advance(long nowMillis, Consumer<T> expired) {
+        ArrayDeque<T> due = new ArrayDeque<>();
+        synchronized (this) {
+            long nowTick = nowMillis / tickMillis;
+            // one full rotation already visits every bucket
+            long from = Math.max(currentTick + 1, nowTick - mask);
+            for (long tick = from; tick <= nowTick; tick++) {
+                Iterator<Entry<T>> it = buckets[(int) (tick & mask)].iterator();
+                while (it.hasNext()) {
+                    Entry<T> entry = it.next();
+                    if (entry.deadlineMillis <= nowMillis) {
+                        it.remove();
+                        size--;
+                        due.add(entry.item);
+                    }
+                }
+            }
+            currentTick = Math.max(currentTick, nowTick);
+        }
+        due.forEach(expired);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private static final class Entry<T> {
+        final T item;
+        final long deadlineMillis;
+
+        Entry(T item, long deadlineMillis) {
+            this.item = item;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+}
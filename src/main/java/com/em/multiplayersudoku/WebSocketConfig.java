@@ -1,27 +1,173 @@
 package com.em.multiplayersudoku;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.TaskExecutorRegistration;
+import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import jakarta.annotation.PreDestroy;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Autowired
+    private GameMetrics gameMetrics;
+
+    @Autowired
+    private RoomStore roomStore;
+
+    // External STOMP broker (RabbitMQ, ActiveMQ) shared by all nodes, in place of the simple broker
+    @Value("${sudoku.broker.relay.enabled:false}")
+    private boolean relayEnabled;
+    @Value("${sudoku.broker.relay.host:localhost}")
+    private String relayHost;
+    @Value("${sudoku.broker.relay.port:61613}")
+    private int relayPort;
+    @Value("${sudoku.broker.relay.client-login:guest}")
+    private String relayClientLogin;
+    @Value("${sudoku.broker.relay.client-passcode:guest}")
+    private String relayClientPasscode;
+    @Value("${sudoku.broker.relay.system-login:guest}")
+    private String relaySystemLogin;
+    @Value("${sudoku.broker.relay.system-passcode:guest}")
+    private String relaySystemPasscode;
+
+    // "pool" for a bounded ThreadPoolTaskExecutor, "virtual" for one virtual thread per message
+    @Value("${sudoku.websocket.inbound.mode:pool}")
+    private String inboundMode;
+    @Value("${sudoku.websocket.inbound.core-pool-size:0}")
+    private int inboundCorePoolSize;
+    @Value("${sudoku.websocket.inbound.max-pool-size:0}")
+    private int inboundMaxPoolSize;
+    @Value("${sudoku.websocket.inbound.queue-capacity:0}")
+    private int inboundQueueCapacity;
+
+    @Value("${sudoku.websocket.outbound.mode:pool}")
+    private String outboundMode;
+    @Value("${sudoku.websocket.outbound.core-pool-size:0}")
+    private int outboundCorePoolSize;
+    @Value("${sudoku.websocket.outbound.max-pool-size:0}")
+    private int outboundMaxPoolSize;
+    @Value("${sudoku.websocket.outbound.queue-capacity:0}")
+    private int outboundQueueCapacity;
+
+    // handle each session's frames in the order they arrived or were published
+    @Value("${sudoku.websocket.preserve-order:true}")
+    private boolean preserveOrder;
+
+    @Value("${sudoku.websocket.send-time-limit-ms:5000}")
+    private int sendTimeLimitMillis;
+    @Value("${sudoku.websocket.send-buffer-size-limit:262144}")
+    private int sendBufferSizeLimit;
+    @Value("${sudoku.websocket.message-size-limit:16384}")
+    private int messageSizeLimit;
+
+    // writes for conflating sessions; a stuck client only parks its own virtual thread
+    private final ExecutorService outboundSender = Executors
+            .newThreadPerTaskExecutor(Thread.ofVirtual().name("ws-send-", 0).factory());
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.setUserDestinationPrefix("/user");
         // messages to destinations prefixed with /app routed to @MessageMapping
         config.setApplicationDestinationPrefixes("/app");
-        // simple in-memory broker for /topic broadcasts
-        config.enableSimpleBroker("/topic");
+        if (relayEnabled) {
+            // every node publishes to and subscribes through the same broker
+            config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayClientLogin)
+                    .setClientPasscode(relayClientPasscode)
+                    .setSystemLogin(relaySystemLogin)
+                    .setSystemPasscode(relaySystemPasscode)
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/user-registry");
+        } else {
+            // simple in-memory broker for /topic broadcasts and /user/queue replies
+            config.enableSimpleBroker("/topic", "/queue");
+        }
+        // deltas carry a sequence number; a reordered delivery would look like a gap
+        config.setPreservePublishOrder(preserveOrder);
+        // room broadcasts reach the broker already serialized
+        config.configureBrokerChannel().interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                // copies replicated from another node were counted where they were published
+                if (message.getPayload() instanceof byte[] payload
+                        && !message.getHeaders().containsKey(SharedLocalRoomStore.REPLICATED_HEADER))
+                    gameMetrics.recordBroadcast(payload.length);
+                roomStore.replicate(message);
+                return message;
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        outboundSender.shutdownNow();
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // clients connect here (with SockJS fallback if desired)
         registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
+        registry.setPreserveReceiveOrder(preserveOrder);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMillis);
+        registration.setSendBufferSizeLimit(sendBufferSizeLimit);
+        registration.setMessageSizeLimit(messageSizeLimit);
+        // our queue sits behind Spring's per-session decorator; it never blocks, so
+        // frames only ever wait (and get conflated) here
+        registration.addDecoratorFactory(handler -> new ConflatingHandlerDecorator(handler, outboundSender,
+                sendTimeLimitMillis, sendBufferSizeLimit, gameMetrics));
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        configureChannel(registration, "clientInboundChannel-", inboundMode, inboundCorePoolSize,
+                inboundMaxPoolSize, inboundQueueCapacity);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        configureChannel(registration, "clientOutboundChannel-", outboundMode, outboundCorePoolSize,
+                outboundMaxPoolSize, outboundQueueCapacity);
+    }
+
+    // Sizes of 0 keep Spring's defaults (2 x cores, unbounded max and queue)
+    private static void configureChannel(ChannelRegistration registration, String threadNamePrefix, String mode,
+            int corePoolSize, int maxPoolSize, int queueCapacity) {
+        if ("virtual".equalsIgnoreCase(mode)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+            executor.setVirtualThreads(true);
+            registration.executor(executor);
+            return;
+        }
+        if (!"pool".equalsIgnoreCase(mode))
+            throw new IllegalArgumentException("Unknown channel executor mode: " + mode);
+        TaskExecutorRegistration taskExecutor = registration.taskExecutor();
+        if (corePoolSize > 0)
+            taskExecutor.corePoolSize(corePoolSize);
+        if (maxPoolSize > 0)
+            taskExecutor.maxPoolSize(Math.max(maxPoolSize, corePoolSize));
+        if (queueCapacity > 0)
+            taskExecutor.queueCapacity(queueCapacity);
     }
 }
\ No newline at end of file
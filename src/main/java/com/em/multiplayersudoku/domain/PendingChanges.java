@@ -0,0 +1,123 @@
+package com.em.multiplayersudoku.domain;
+
+/**
+ * Room changes waiting for the next coalesced broadcast: which cells changed on
+ * which seat's board, whose REMOVE cooldown started, and whether a full snapshot
+ * was asked for. Only the latest state is ever sent, so a cell that changes five
+ * times within one window is sent once. Confined to the room's shard like
+ * {@link Room}.
+ */
+public class PendingChanges {
+    // per seat: cells 0-63 in low, 64-80 in high
+    private final long[] dirtyLow;
+    private final long[] dirtyHigh;
+    private int removeUsedSeats; // bit per seat
+    private boolean snapshotRequested;
+    private boolean flushScheduled;
+    // spectators get a throttled view: whether it is stale, and when the last frame went out
+    private boolean spectatorsBehind;
+    private boolean spectatorFrameScheduled;
+    private long lastSpectatorFrame; // epoch millis
+    private boolean spectatorFanoutRunning; // a frame is still being handed to the broker
+
+    public PendingChanges(int seats) {
+        this.dirtyLow = new long[seats];
+        this.dirtyHigh = new long[seats];
+    }
+
+    public void markCell(int seat, int cellIndex) {
+        if (cellIndex < 64) {
+            dirtyLow[seat] |= 1L << cellIndex;
+        } else {
+            dirtyHigh[seat] |= 1L << (cellIndex - 64);
+        }
+    }
+
+    public void markRemoveUsed(int seat) {
+        removeUsedSeats |= 1 << seat;
+    }
+
+    // a snapshot carries every board, so queued cell changes are dropped
+    public void requestSnapshot() {
+        snapshotRequested = true;
+    }
+
+    public boolean isSnapshotRequested() {
+        return snapshotRequested;
+    }
+
+    public long getDirtyLow(int seat) {
+        return dirtyLow[seat];
+    }
+
+    public long getDirtyHigh(int seat) {
+        return dirtyHigh[seat];
+    }
+
+    public boolean hasDirtyCells(int seat) {
+        return (dirtyLow[seat] | dirtyHigh[seat]) != 0;
+    }
+
+    public boolean isRemoveUsed(int seat) {
+        return (removeUsedSeats & (1 << seat)) != 0;
+    }
+
+    public boolean isEmpty() {
+        if (snapshotRequested || removeUsedSeats != 0)
+            return false;
+        for (int seat = 0; seat < dirtyLow.length; seat++) {
+            if (hasDirtyCells(seat))
+                return false;
+        }
+        return true;
+    }
+
+    public void clear() {
+        for (int seat = 0; seat < dirtyLow.length; seat++) {
+            dirtyLow[seat] = 0;
+            dirtyHigh[seat] = 0;
+        }
+        removeUsedSeats = 0;
+        snapshotRequested = false;
+    }
+
+    public boolean isFlushScheduled() {
+        return flushScheduled;
+    }
+
+    public void setFlushScheduled(boolean flushScheduled) {
+        this.flushScheduled = flushScheduled;
+    }
+
+    public boolean isSpectatorsBehind() {
+        return spectatorsBehind;
+    }
+
+    public void setSpectatorsBehind(boolean spectatorsBehind) {
+        this.spectatorsBehind = spectatorsBehind;
+    }
+
+    public boolean isSpectatorFrameScheduled() {
+        return spectatorFrameScheduled;
+    }
+
+    public void setSpectatorFrameScheduled(boolean spectatorFrameScheduled) {
+        this.spectatorFrameScheduled = spectatorFrameScheduled;
+    }
+
+    public long getLastSpectatorFrame() {
+        return lastSpectatorFrame;
+    }
+
+    public void setLastSpectatorFrame(long lastSpectatorFrame) {
+        this.lastSpectatorFrame = lastSpectatorFrame;
+    }
+
+    public boolean isSpectatorFanoutRunning() {
+        return spectatorFanoutRunning;
+    }
+
+    public void setSpectatorFanoutRunning(boolean spectatorFanoutRunning) {
+        this.spectatorFanoutRunning = spectatorFanoutRunning;
+    }
+}
@@ -0,0 +1,194 @@
+package com.em.multiplayersudoku.domain;
+
+import java.util.Arrays;
+
+import com.em.multiplayersudoku.CellStatus;
+import com.em.multiplayersudoku.SudokuGenerator;
+
+/**
+ * One player's board for the room puzzle, packed into one byte per cell:
+ * the value (0-9) in the high nibble and the {@link CellStatus} ordinal in the
+ * low nibble. Wrong-guess cooldowns live in a small sparse list since only a
+ * handful of cells are ever cooling down at once.
+ * <p>
+ * Keeps running counts of correct, wrong and unsolved cells so that progress
+ * and completion checks do not scan the board.
+ */
+public class PlayerBoard {
+    private static final int GRID_SIZE = SudokuGenerator.GRID_SIZE;
+    private static final CellStatus[] STATUSES = CellStatus.values();
+
+    private final Puzzle puzzle;
+    private final byte[] cells = new byte[GRID_SIZE * GRID_SIZE];
+
+    // sparse cooldowns: cell index -> epoch millis, first cooldownCount entries used
+    private int[] cooldownCells = new int[4];
+    private long[] cooldownUntil = new long[4];
+    private int cooldownCount;
+
+    private int correctCount; // cells with CORRECT_GUESS
+    private int wrongCount; // cells with WRONG_GUESS
+    private int unsolvedCount; // cells whose value differs from the solution
+
+    public PlayerBoard(Puzzle puzzle) {
+        this.puzzle = puzzle;
+        for (int row = 0; row < GRID_SIZE; row++) {
+            for (int col = 0; col < GRID_SIZE; col++) {
+                int value = puzzle.getGiven(row, col);
+                CellStatus status = (value == 0) ? CellStatus.TO_GUESS : CellStatus.GIVEN;
+                cells[row * GRID_SIZE + col] = pack(value, status);
+                if (value == 0)
+                    unsolvedCount++;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds a board from {@link #copyPackedCells()} output, e.g. a journal
+     * snapshot. Cooldowns are not restored.
+     */
+    public PlayerBoard(Puzzle puzzle, byte[] packedCells) {
+        this.puzzle = puzzle;
+        System.arraycopy(packedCells, 0, cells, 0, cells.length);
+        for (int index = 0; index < cells.length; index++) {
+            count(STATUSES[cells[index] & 0x0F], 1);
+            if (((cells[index] >> 4) & 0x0F) != puzzle.getSolution(index / GRID_SIZE, index % GRID_SIZE))
+                unsolvedCount++;
+        }
+    }
+
+    public int getValue(int row, int col) {
+        return (cells[row * GRID_SIZE + col] >> 4) & 0x0F;
+    }
+
+    public CellStatus getStatus(int row, int col) {
+        return STATUSES[cells[row * GRID_SIZE + col] & 0x0F];
+    }
+
+    /**
+     * Sets a cell value (0 clears it) and updates its status against the solution.
+     *
+     * @throws IllegalArgumentException if the cell or value is outside the board;
+     *                                  they would not survive packing
+     */
+    public void setValue(int row, int col, int value) {
+        if (row < 0 || row >= GRID_SIZE || col < 0 || col >= GRID_SIZE || value < 0 || value > GRID_SIZE)
+            throw new IllegalArgumentException("No cell (" + row + "," + col + ") = " + value);
+        int solution = puzzle.getSolution(row, col);
+        CellStatus status;
+        if (value == 0) {
+            status = CellStatus.TO_GUESS;
+        } else if (value == solution) {
+            status = CellStatus.CORRECT_GUESS;
+        } else {
+            status = CellStatus.WRONG_GUESS;
+        }
+        replace(row * GRID_SIZE + col, value, status, solution);
+    }
+
+    /**
+     * Fills every cell with its solution value (WIN).
+     */
+    public void fillSolution() {
+        for (int row = 0; row < GRID_SIZE; row++) {
+            for (int col = 0; col < GRID_SIZE; col++) {
+                int solution = puzzle.getSolution(row, col);
+                replace(row * GRID_SIZE + col, solution, CellStatus.CORRECT_GUESS, solution);
+            }
+        }
+    }
+
+    private void replace(int index, int value, CellStatus status, int solution) {
+        int old = cells[index];
+        if (((old >> 4) & 0x0F) != solution)
+            unsolvedCount--;
+        count(STATUSES[old & 0x0F], -1);
+        cells[index] = pack(value, status);
+        count(status, 1);
+        if (value != solution)
+            unsolvedCount++;
+    }
+
+    private void count(CellStatus status, int delta) {
+        if (status == CellStatus.CORRECT_GUESS) {
+            correctCount += delta;
+        } else if (status == CellStatus.WRONG_GUESS) {
+            wrongCount += delta;
+        }
+    }
+
+    private static byte pack(int value, CellStatus status) {
+        return (byte) (value << 4 | status.ordinal());
+    }
+
+    public long getCooldownUntil(int row, int col) {
+        int index = row * GRID_SIZE + col;
+        for (int i = 0; i < cooldownCount; i++) {
+            if (cooldownCells[i] == index)
+                return cooldownUntil[i];
+        }
+        return 0L;
+    }
+
+    /**
+     * Starts a cooldown on a cell, dropping cooldowns that ended before {@code now}.
+     */
+    public void setCooldownUntil(int row, int col, long until, long now) {
+        int index = row * GRID_SIZE + col;
+        int kept = 0;
+        for (int i = 0; i < cooldownCount; i++) {
+            if (cooldownCells[i] != index && cooldownUntil[i] > now) {
+                cooldownCells[kept] = cooldownCells[i];
+                cooldownUntil[kept] = cooldownUntil[i];
+                kept++;
+            }
+        }
+        if (kept == cooldownCells.length) {
+            cooldownCells = Arrays.copyOf(cooldownCells, kept * 2);
+            cooldownUntil = Arrays.copyOf(cooldownUntil, kept * 2);
+        }
+        cooldownCells[kept] = index;
+        cooldownUntil[kept] = until;
+        cooldownCount = kept + 1;
+    }
+
+    /**
+     * Copy of the packed cells, row-major, for the compact wire encoding.
+     */
+    public byte[] copyPackedCells() {
+        return cells.clone();
+    }
+
+    /**
+     * Cooldowns still running at {@code now} as flat [cellIndex, untilEpochMillis]
+     * pairs.
+     */
+    public long[] activeCooldowns(long now) {
+        int active = 0;
+        for (int i = 0; i < cooldownCount; i++) {
+            if (cooldownUntil[i] > now)
+                active++;
+        }
+        long[] pairs = new long[active * 2];
+        int j = 0;
+        for (int i = 0; i < cooldownCount; i++) {
+            if (cooldownUntil[i] > now) {
+                pairs[j++] = cooldownCells[i];
+                pairs[j++] = cooldownUntil[i];
+            }
+        }
+        return pairs;
+    }
+
+    public int getCorrectCount() {
+        return correctCount;
+    }
+
+    public int getWrongCount() {
+        return wrongCount;
+    }
+
+    public boolean isComplete() {
+        return unsolvedCount == 0;
+    }
+}
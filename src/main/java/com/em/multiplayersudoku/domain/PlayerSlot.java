@@ -0,0 +1,59 @@
+package com.em.multiplayersudoku.domain;
+
+/**
+ * Everything a room keeps for one seated player. Looked up once per action
+ * via {@link Room#getPlayer(String)} and then used directly.
+ */
+public class PlayerSlot {
+    private final int index; // seat number in the room
+    private final String sessionId;
+    private PlayerBoard board; // null until a puzzle is dealt
+    private long lastRemoveUsed; // epoch millis, 0 if never used
+    private boolean compactEncoding; // subscribed to /topic/room/{code}/compact
+
+    PlayerSlot(int index, String sessionId) {
+        this.index = index;
+        this.sessionId = sessionId;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public PlayerBoard getBoard() {
+        return board;
+    }
+
+    void setBoard(PlayerBoard board) {
+        this.board = board;
+    }
+
+    // Utility: count filled cells (CORRECT_GUESS only)
+    public int getFilledCellCount() {
+        return (board != null) ? board.getCorrectCount() : 0;
+    }
+
+    public int getWrongCellCount() {
+        return (board != null) ? board.getWrongCount() : 0;
+    }
+
+    public long getLastRemoveUsed() {
+        return lastRemoveUsed;
+    }
+
+    void setLastRemoveUsed(long lastRemoveUsed) {
+        this.lastRemoveUsed = lastRemoveUsed;
+    }
+
+    public boolean isCompactEncoding() {
+        return compactEncoding;
+    }
+
+    void setCompactEncoding(boolean compactEncoding) {
+        this.compactEncoding = compactEncoding;
+    }
+}
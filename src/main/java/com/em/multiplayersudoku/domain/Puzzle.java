@@ -0,0 +1,59 @@
+package com.em.multiplayersudoku.domain;
+
+import com.em.multiplayersudoku.SudokuGenerator;
+
+/**
+ * An immutable generated puzzle: the given clues and the unique solution.
+ */
+public final class Puzzle {
+    private static final int GRID_SIZE = SudokuGenerator.GRID_SIZE;
+
+    private final byte[] givens; // row-major, 0 = empty
+    private final byte[] solution; // row-major
+    private final int clueCount;
+
+    public Puzzle(int[][] givens, int[][] solution) {
+        this.givens = new byte[GRID_SIZE * GRID_SIZE];
+        this.solution = new byte[GRID_SIZE * GRID_SIZE];
+        int clues = 0;
+        for (int row = 0; row < GRID_SIZE; row++) {
+            for (int col = 0; col < GRID_SIZE; col++) {
+                this.givens[row * GRID_SIZE + col] = (byte) givens[row][col];
+                this.solution[row * GRID_SIZE + col] = (byte) solution[row][col];
+                if (givens[row][col] != 0)
+                    clues++;
+            }
+        }
+        this.clueCount = clues;
+    }
+
+    public int getGiven(int row, int col) {
+        return givens[row * GRID_SIZE + col];
+    }
+
+    public int getSolution(int row, int col) {
+        return solution[row * GRID_SIZE + col];
+    }
+
+    public int getClueCount() {
+        return clueCount;
+    }
+
+    public int[][] toGivenArray() {
+        return toArray(givens);
+    }
+
+    public int[][] toSolutionArray() {
+        return toArray(solution);
+    }
+
+    private static int[][] toArray(byte[] cells) {
+        int[][] board = new int[GRID_SIZE][GRID_SIZE];
+        for (int row = 0; row < GRID_SIZE; row++) {
+            for (int col = 0; col < GRID_SIZE; col++) {
+                board[row][col] = cells[row * GRID_SIZE + col];
+            }
+        }
+        return board;
+    }
+}
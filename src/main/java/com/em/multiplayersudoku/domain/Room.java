@@ -1,39 +1,82 @@
 package com.em.multiplayersudoku.domain;
 
-import com.em.multiplayersudoku.Cell;
-import com.em.multiplayersudoku.CellStatus;
-import com.em.multiplayersudoku.SudokuGenerator;
-
-import java.time.Instant;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
+/**
+ * State of one game room. A room is confined to its
+ * {@link com.em.multiplayersudoku.RoomExecutor} shard: every change runs there,
+ * one at a time, so nothing here is locked. The volatile fields only make counts
+ * and state readable from other threads.
+ */
 public class Room {
+    // seats per room
+    public static final int MIN_PLAYERS = 2;
+    public static final int MAX_PLAYERS = 16;
+    public static final int DEFAULT_PLAYERS = 2;
+    private static final int CELL_COOLDOWN_SECONDS = 3;
+
     private final String code;
     private final Difficulty difficulty;
     private final int removeThreshold;
     private final int cooldownSeconds;
+    private final int maxPlayers;
 
-    // session IDs of the two players
-    private final Set<String> players = ConcurrentHashMap.newKeySet();
+    // one seat per player; a session is resolved to its seat once per action
+    private final PlayerSlot[] slots;
+    private final Map<String, PlayerSlot> playersBySession = new HashMap<>();
+    private volatile int playerCount;
+    // filled counts of the seated players, kept in step with every board change
+    private final Standings standings = new Standings();
+    private volatile int compactSubscriberCount;
+    // subscribers of /topic/room/{code}/spectate; they never take a seat
+    private volatile int spectatorCount;
 
-    // track last-used timestamps for power-ups per session
-    private final ConcurrentHashMap<String, Instant> lastRemoveUsed = new ConcurrentHashMap<>();
+    private volatile RoomState state = RoomState.LOBBY;
+    // a START is waiting for its puzzle to be generated
+    private boolean startPending;
 
-    // Add a field for the puzzle board (Cell[][]) for each player
-    private final ConcurrentHashMap<String, Cell[][]> playerBoards = new ConcurrentHashMap<>();
+    // sequence number of the last board broadcast (snapshot or delta)
+    private long sequence;
 
-    // Add a field for the solution board (int[][]) for each player
-    private final ConcurrentHashMap<String, int[][]> playerSolutions = new ConcurrentHashMap<>();
+    // changes not yet broadcast, see RoomBroadcaster
+    private final PendingChanges pendingChanges;
 
-    private final ConcurrentHashMap<String, long[][]> cellCooldowns = new ConcurrentHashMap<>();
-    private static final int CELL_COOLDOWN_SECONDS = 3;
+    // Puzzle shared by every player; each seat's board only holds that player's guesses on top of it
+    private volatile Puzzle puzzle;
+
+    // sequence number of the last change written to the room journal
+    private long journalSequence;
+
+    // boards recovered from the journal, one per seat; the next player to take a seat gets its board
+    private PlayerBoard[] restoredBoards;
+
+    // epoch millis, read by the eviction sweeper; emptySince and finishedAt are 0 when not applicable
+    private volatile long lastActivity;
+    private volatile long emptySince;
+    private volatile long finishedAt;
 
     public Room(String code, Difficulty difficulty, int removeThreshold, int cooldownSeconds) {
+        this(code, difficulty, removeThreshold, cooldownSeconds, DEFAULT_PLAYERS);
+    }
+
+    public Room(String code, Difficulty difficulty, int removeThreshold, int cooldownSeconds, int maxPlayers) {
+        if (maxPlayers < MIN_PLAYERS || maxPlayers > MAX_PLAYERS)
+            throw new IllegalArgumentException("Rooms seat " + MIN_PLAYERS + " to " + MAX_PLAYERS + " players");
         this.code = code;
         this.difficulty = difficulty;
         this.removeThreshold = removeThreshold;
         this.cooldownSeconds = cooldownSeconds;
+        this.maxPlayers = maxPlayers;
+        this.slots = new PlayerSlot[maxPlayers];
+        this.pendingChanges = new PendingChanges(maxPlayers);
+        long now = System.currentTimeMillis();
+        this.lastActivity = now;
+        this.emptySince = now;
     }
 
     public String getCode() {
@@ -52,133 +95,310 @@ public class Room {
         return cooldownSeconds;
     }
 
-    public Set<String> getPlayers() {
-        return players;
+    public int getMaxPlayers() {
+        return maxPlayers;
     }
 
-    public void addPlayer(String sessionId) {
-        if (!players.contains(sessionId) && players.size() < 2) {
-            players.add(sessionId);
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    /**
+     * Session IDs of the seated players, in seat order. Allocates; prefer
+     * {@link #getSlot(int)} on hot paths.
+     */
+    public List<String> getPlayers() {
+        List<String> players = new ArrayList<>(maxPlayers);
+        for (PlayerSlot slot : slots) {
+            if (slot != null)
+                players.add(slot.getSessionId());
         }
+        return players;
     }
 
-    public void removePlayer(String sessionId) {
-        players.remove(sessionId);
-        lastRemoveUsed.remove(sessionId);
-        playerBoards.remove(sessionId);
-        playerSolutions.remove(sessionId);
-        cellCooldowns.remove(sessionId);
+    /**
+     * Seat index of the session, or -1 if it is not seated here.
+     */
+    public int slotOf(String sessionId) {
+        PlayerSlot slot = getPlayer(sessionId);
+        return (slot != null) ? slot.getIndex() : -1;
     }
 
-    public boolean canUseRemove(String sessionId) {
-        Instant last = lastRemoveUsed.get(sessionId);
-        return last == null || Instant.now().isAfter(last.plusSeconds(cooldownSeconds));
+    // null for an empty seat
+    public PlayerSlot getSlot(int index) {
+        return slots[index];
     }
 
-    public void recordRemoveUse(String sessionId) {
-        lastRemoveUsed.put(sessionId, Instant.now());
+    public PlayerSlot getPlayer(String sessionId) {
+        return (sessionId != null) ? playersBySession.get(sessionId) : null;
     }
 
-    // Add a method to initialize a board for a player
-    public void initializeBoardForPlayer(String sessionId, int clues) {
-        SudokuGenerator generator = new SudokuGenerator();
-        int[][] solution = new int[SudokuGenerator.GRID_SIZE][SudokuGenerator.GRID_SIZE];
-        generator.fillBoard(solution); // generate a full solution
-        int[][] puzzle = generator.copyBoard(solution);
-        generator.removeNumbers(puzzle, clues);
-        Cell[][] cellBoard = new Cell[SudokuGenerator.GRID_SIZE][SudokuGenerator.GRID_SIZE];
-        for (int row = 0; row < SudokuGenerator.GRID_SIZE; row++) {
-            for (int col = 0; col < SudokuGenerator.GRID_SIZE; col++) {
-                int value = puzzle[row][col];
-                CellStatus status = (value == 0) ? CellStatus.TO_GUESS : CellStatus.GIVEN;
-                cellBoard[row][col] = new Cell(value, status);
+    public boolean addPlayer(String sessionId) {
+        if (slotOf(sessionId) >= 0)
+            return false;
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == null) {
+                PlayerSlot slot = new PlayerSlot(i, sessionId);
+                if (restoredBoards != null && restoredBoards[i] != null) {
+                    slot.setBoard(restoredBoards[i]);
+                    restoredBoards[i] = null;
+                } else if (puzzle != null) {
+                    // joining a game in progress: deal the current puzzle
+                    slot.setBoard(new PlayerBoard(puzzle));
+                }
+                slots[i] = slot;
+                playersBySession.put(sessionId, slot);
+                standings.add(slot.getFilledCellCount());
+                playerCount++;
+                emptySince = 0L;
+                touch();
+                return true;
             }
         }
-        playerBoards.put(sessionId, cellBoard);
-        playerSolutions.put(sessionId, solution);
-        cellCooldowns.put(sessionId, new long[SudokuGenerator.GRID_SIZE][SudokuGenerator.GRID_SIZE]);
+        return false;
     }
 
-    public boolean isCellOnCooldown(String sessionId, int row, int col) {
-        long[][] cooldowns = cellCooldowns.get(sessionId);
-        return cooldowns != null && System.currentTimeMillis() < cooldowns[row][col];
+    public boolean removePlayer(String sessionId) {
+        int index = slotOf(sessionId);
+        if (index < 0)
+            return false;
+        PlayerSlot slot = slots[index];
+        if (slot.isCompactEncoding())
+            compactSubscriberCount--;
+        standings.remove(slot.getFilledCellCount());
+        playersBySession.remove(sessionId);
+        slots[index] = null;
+        playerCount--;
+        touch();
+        if (playerCount == 0)
+            emptySince = lastActivity;
+        return true;
     }
 
-    public void setCellCooldown(String sessionId, int row, int col) {
-        long[][] cooldowns = cellCooldowns.get(sessionId);
-        if (cooldowns != null) {
-            cooldowns[row][col] = System.currentTimeMillis() + CELL_COOLDOWN_SECONDS * 1000;
+    public void useCompactEncoding(String sessionId) {
+        PlayerSlot player = getPlayer(sessionId);
+        if (player != null && !player.isCompactEncoding()) {
+            player.setCompactEncoding(true);
+            compactSubscriberCount++;
         }
     }
 
-    public long getCellCooldownUntil(String sessionId, int row, int col) {
-        long[][] cooldowns = cellCooldowns.get(sessionId);
-        return (cooldowns != null) ? cooldowns[row][col] : 0;
+    public int getCompactSubscriberCount() {
+        return compactSubscriberCount;
     }
 
-    public Cell[][] getBoardForPlayer(String sessionId) {
-        return playerBoards.get(sessionId);
+    public void addSpectator() {
+        spectatorCount++;
     }
 
-    // Optionally, add a method to update a cell for a player
-    public void updateCellForPlayer(String sessionId, int row, int col, int value) {
-        Cell[][] board = playerBoards.get(sessionId);
-        int[][] solution = playerSolutions.get(sessionId);
-        if (board != null && solution != null) {
-            board[row][col].setValue(value);
-            if (value == 0) {
-                board[row][col].setStatus(CellStatus.TO_GUESS);
-            } else if (value == solution[row][col]) {
-                board[row][col].setStatus(CellStatus.CORRECT_GUESS);
-            } else {
-                board[row][col].setStatus(CellStatus.WRONG_GUESS);
-            }
-        }
+    public void removeSpectator() {
+        if (spectatorCount > 0)
+            spectatorCount--;
     }
 
-    public boolean isPlayerBoardComplete(String sessionId) {
-        Cell[][] board = playerBoards.get(sessionId);
-        int[][] solution = playerSolutions.get(sessionId);
-        if (board == null || solution == null)
+    public int getSpectatorCount() {
+        return spectatorCount;
+    }
+
+    public boolean canUseRemove(PlayerSlot player) {
+        long last = player.getLastRemoveUsed();
+        return last == 0 || System.currentTimeMillis() > last + cooldownSeconds * 1000L;
+    }
+
+    public void recordRemoveUse(PlayerSlot player) {
+        player.setLastRemoveUsed(System.currentTimeMillis());
+    }
+
+    // epoch millis when REMOVE is usable again, 0 if it is available now
+    public long getRemoveCooldownUntil(PlayerSlot player) {
+        if (canUseRemove(player))
+            return 0L;
+        return player.getLastRemoveUsed() + cooldownSeconds * 1000L;
+    }
+
+    /**
+     * Whether the player may REMOVE a cell from some opponent's board now: off
+     * cooldown, with at least one opponent removeThreshold or more cells ahead.
+     */
+    public boolean canRemoveOpponentCell(PlayerSlot player) {
+        if (!canUseRemove(player))
             return false;
-        for (int row = 0; row < board.length; row++) {
-            for (int col = 0; col < board[row].length; col++) {
-                if (board[row][col].getValue() != solution[row][col]) {
-                    return false;
-                }
+        int ahead = standings.countAtLeast(player.getFilledCellCount() + removeThreshold);
+        if (removeThreshold <= 0)
+            ahead--; // the player counts itself
+        return ahead > 0;
+    }
+
+    /**
+     * Whether the player may REMOVE a cell from this opponent's board now. Any
+     * opponent removeThreshold or more cells ahead can be targeted, not only
+     * the leader.
+     */
+    public boolean canRemoveCell(PlayerSlot player, PlayerSlot target) {
+        return target != player && canUseRemove(player)
+                && target.getFilledCellCount() - player.getFilledCellCount() >= removeThreshold;
+    }
+
+    // filled count of the leading player, 0 in an empty room
+    public int getMaxFilledCount() {
+        return standings.getMax();
+    }
+
+    // 1 for the leader; players with the same filled count share a rank
+    public int getRank(PlayerSlot player) {
+        return standings.rank(player.getFilledCellCount());
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long nextSequence() {
+        return ++sequence;
+    }
+
+    public PendingChanges getPendingChanges() {
+        return pendingChanges;
+    }
+
+    public long getJournalSequence() {
+        return journalSequence;
+    }
+
+    public long nextJournalSequence() {
+        return ++journalSequence;
+    }
+
+    // board waiting for the next player in the seat, null if none
+    public PlayerBoard getRestoredBoard(int seat) {
+        return (restoredBoards != null) ? restoredBoards[seat] : null;
+    }
+
+    /**
+     * Restores the game state of a room recovered from the journal. Nobody is
+     * seated; each seat's board goes to the next player who takes that seat.
+     * The room is not counted as empty, so its players get the idle timeout
+     * rather than the empty timeout to come back after a restart.
+     */
+    public void restore(RoomState state, Puzzle puzzle, PlayerBoard[] boards, long journalSequence) {
+        this.state = state;
+        this.puzzle = puzzle;
+        this.restoredBoards = Arrays.copyOf(boards, maxPlayers);
+        this.journalSequence = journalSequence;
+        emptySince = 0L;
+        if (state == RoomState.FINISHED)
+            finishedAt = lastActivity;
+    }
+
+    public RoomState getState() {
+        return state;
+    }
+
+    public boolean isRunning() {
+        return state == RoomState.RUNNING;
+    }
+
+    public boolean isStartPending() {
+        return startPending;
+    }
+
+    public void setStartPending(boolean startPending) {
+        this.startPending = startPending;
+    }
+
+    /**
+     * Moves LOBBY or FINISHED to RUNNING on a new puzzle and deals a fresh board to
+     * every player. A start while already RUNNING is a no-op and does not call the
+     * supplier.
+     *
+     * @return true if this call started a new game
+     */
+    public boolean start(Supplier<Puzzle> puzzleSupplier) {
+        if (state == RoomState.RUNNING)
+            return false;
+        this.puzzle = puzzleSupplier.get();
+        restoredBoards = null;
+        standings.clear();
+        for (PlayerSlot slot : slots) {
+            if (slot != null) {
+                slot.setBoard(new PlayerBoard(puzzle));
+                standings.add(slot.getFilledCellCount());
             }
         }
+        state = RoomState.RUNNING;
+        finishedAt = 0L;
+        touch();
         return true;
     }
 
-    public int[][] getSolutionForPlayer(String sessionId) {
-        return playerSolutions.get(sessionId);
+    /**
+     * Moves RUNNING to FINISHED.
+     *
+     * @return true if this call finished the game, false if it was not running
+     */
+    public boolean finish() {
+        if (state != RoomState.RUNNING)
+            return false;
+        state = RoomState.FINISHED;
+        touch();
+        finishedAt = lastActivity;
+        return true;
     }
 
-    public long[][] getCellCooldowns(String sessionId) {
-        return cellCooldowns.get(sessionId);
+    public void touch() {
+        lastActivity = System.currentTimeMillis();
     }
 
-    // Utility: count filled cells (CORRECT_GUESS only) for a player
-    public int getFilledCellCount(String sessionId) {
-        Cell[][] board = playerBoards.get(sessionId);
-        if (board == null)
-            return 0;
-        int count = 0;
-        for (int row = 0; row < board.length; row++) {
-            for (int col = 0; col < board[row].length; col++) {
-                CellStatus status = board[row][col].getStatus();
-                if (status == CellStatus.CORRECT_GUESS) {
-                    count++;
-                }
-            }
+    public long getLastActivity() {
+        return lastActivity;
+    }
+
+    public long getEmptySince() {
+        return emptySince;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public Puzzle getPuzzle() {
+        return puzzle;
+    }
+
+    public boolean isCellOnCooldown(PlayerSlot player, int row, int col) {
+        PlayerBoard board = player.getBoard();
+        return board != null && System.currentTimeMillis() < board.getCooldownUntil(row, col);
+    }
+
+    public void setCellCooldown(PlayerSlot player, int row, int col) {
+        PlayerBoard board = player.getBoard();
+        if (board != null) {
+            long now = System.currentTimeMillis();
+            board.setCooldownUntil(row, col, now + CELL_COOLDOWN_SECONDS * 1000, now);
         }
-        return count;
     }
 
-    public Instant getLastRemoveUsed(String sessionId) {
-        return lastRemoveUsed.get(sessionId);
+    public void updateCellForPlayer(PlayerSlot player, int row, int col, int value) {
+        PlayerBoard board = player.getBoard();
+        if (board != null) {
+            int filled = board.getCorrectCount();
+            board.setValue(row, col, value);
+            standings.move(filled, board.getCorrectCount());
+        }
     }
 
-    // … other game-state methods (puzzle grid, steps behind, etc.) …
+    // Fill the whole board with the solution (WIN)
+    public void fillSolutionForPlayer(PlayerSlot player) {
+        PlayerBoard board = player.getBoard();
+        if (board != null) {
+            int filled = board.getCorrectCount();
+            board.fillSolution();
+            standings.move(filled, board.getCorrectCount());
+        }
+    }
+
+    public boolean isPlayerBoardComplete(PlayerSlot player) {
+        PlayerBoard board = player.getBoard();
+        return board != null && board.isComplete();
+    }
 }
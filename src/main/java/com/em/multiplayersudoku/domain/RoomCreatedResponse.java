@@ -2,12 +2,19 @@ package com.em.multiplayersudoku.domain;
 
 public class RoomCreatedResponse {
     private String roomCode;
+    // node that owns the room; with several nodes, route the room's clients there
+    private String nodeId;
 
-    public RoomCreatedResponse(String roomCode) {
+    public RoomCreatedResponse(String roomCode, String nodeId) {
         this.roomCode = roomCode;
+        this.nodeId = nodeId;
     }
 
     public String getRoomCode() {
         return roomCode;
     }
+
+    public String getNodeId() {
+        return nodeId;
+    }
 }
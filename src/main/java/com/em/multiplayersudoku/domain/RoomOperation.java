@@ -0,0 +1,72 @@
+package com.em.multiplayersudoku.domain;
+
+/**
+ * A unit of room work received on one node and applied on the node that owns
+ * the room: a client action, a game start, a snapshot request, or a session
+ * joining or leaving.
+ */
+public class RoomOperation {
+    public enum Type {
+        ACTION, // a GameAction from /app/room/{code}/action
+        START, // /app/room/{code}/start
+        SNAPSHOT, // /app/room/{code}/snapshot, answered to the session only
+        JOIN, // the session subscribed to the room topic
+        LEAVE, // the session unsubscribed, disconnected or moved to another room
+        SPECTATE, // the session subscribed to the room's spectator topic
+        UNSPECTATE // ... and dropped that subscription
+    }
+
+    private final Type type;
+    private final String roomCode;
+    private final String sessionId;
+    private GameAction action; // ACTION only
+    private boolean compact; // JOIN: subscribed to the compact topic
+    // JOIN, START: run on the owner's shard once the session took a seat; set by the receiving node
+    private Runnable onSeated;
+
+    public RoomOperation(Type type, String roomCode, String sessionId) {
+        this.type = type;
+        this.roomCode = roomCode;
+        this.sessionId = sessionId;
+    }
+
+    public static RoomOperation action(String roomCode, String sessionId, GameAction action) {
+        RoomOperation operation = new RoomOperation(Type.ACTION, roomCode, sessionId);
+        operation.action = action;
+        return operation;
+    }
+
+    public static RoomOperation join(String roomCode, String sessionId, boolean compact) {
+        RoomOperation operation = new RoomOperation(Type.JOIN, roomCode, sessionId);
+        operation.compact = compact;
+        return operation;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getRoomCode() {
+        return roomCode;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public GameAction getAction() {
+        return action;
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    public Runnable getOnSeated() {
+        return onSeated;
+    }
+
+    public void setOnSeated(Runnable onSeated) {
+        this.onSeated = onSeated;
+    }
+}
@@ -0,0 +1,10 @@
+package com.em.multiplayersudoku.domain;
+
+/**
+ * Lifecycle of a room.
+ */
+public enum RoomState {
+    LOBBY, // players joining, no puzzle yet
+    RUNNING, // puzzle dealt, accepting moves
+    FINISHED // someone won; a new start deals a new puzzle
+}
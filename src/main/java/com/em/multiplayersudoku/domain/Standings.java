@@ -0,0 +1,88 @@
+package com.em.multiplayersudoku.domain;
+
+import java.util.Arrays;
+
+/**
+ * Filled-cell counts of a room's seated players, as a histogram over the 82
+ * possible counts with a Fenwick tree on top. The leader's count, a player's
+ * rank and how many players are at least some count are answered without
+ * visiting the players, and a move costs O(log 82) whatever the room size.
+ * Updated by {@link Room} on every change to a seated player's count and
+ * confined to the room's shard like it.
+ */
+class Standings {
+    private static final int BUCKETS = 82; // 0 to 81 filled cells
+
+    private final int[] players = new int[BUCKETS]; // players per filled count
+    private final int[] tree = new int[BUCKETS + 1]; // Fenwick tree over players, 1-based
+    private int size;
+    private int max; // highest count held by a player, 0 if none
+
+    void add(int filled) {
+        update(filled, 1);
+        if (filled > max)
+            max = filled;
+    }
+
+    void remove(int filled) {
+        update(filled, -1);
+        lowerMax();
+    }
+
+    void move(int from, int to) {
+        if (from == to)
+            return;
+        update(from, -1);
+        update(to, 1);
+        if (to > max)
+            max = to;
+        else
+            lowerMax();
+    }
+
+    void clear() {
+        Arrays.fill(players, 0);
+        Arrays.fill(tree, 0);
+        size = 0;
+        max = 0;
+    }
+
+    int getMax() {
+        return max;
+    }
+
+    // players with at least this many filled cells
+    int countAtLeast(int filled) {
+        if (filled <= 0)
+            return size;
+        if (filled >= BUCKETS)
+            return 0;
+        return size - countUpTo(filled - 1);
+    }
+
+    // 1 for the leader; players on the same count share a rank
+    int rank(int filled) {
+        return 1 + countAtLeast(filled + 1);
+    }
+
+    private void update(int filled, int delta) {
+        players[filled] += delta;
+        size += delta;
+        for (int i = filled + 1; i <= BUCKETS; i += i & -i)
+            tree[i] += delta;
+    }
+
+    // players with at most this many filled cells
+    private int countUpTo(int filled) {
+        int count = 0;
+        for (int i = filled + 1; i > 0; i -= i & -i)
+            count += tree[i];
+        return count;
+    }
+
+    // the leader only drops one cell at a time in play, so this rarely steps more than once
+    private void lowerMax() {
+        while (max > 0 && players[max] == 0)
+            max--;
+    }
+}
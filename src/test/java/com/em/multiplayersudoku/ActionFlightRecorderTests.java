@@ -0,0 +1,129 @@
+package com.em.multiplayersudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.em.multiplayersudoku.ActionFlightRecorder.Entry;
+import com.em.multiplayersudoku.ActionFlightRecorder.Outcome;
+import com.em.multiplayersudoku.domain.GameAction.ActionType;
+import com.em.multiplayersudoku.domain.RoomOperation;
+
+class ActionFlightRecorderTests {
+
+	@Test
+	void keepsTheNewestEntriesOnceTheRingWraps() {
+		ActionFlightRecorder recorder = new ActionFlightRecorder(3); // rounded up to 4
+		assertEquals(4, recorder.getCapacity());
+		for (int i = 0; i < 6; i++)
+			recorder.recordAction("ABCDEF", ActionType.FILL, 1, i, 8 - i, 9, Outcome.APPLIED, "s" + i, 1500);
+
+		List<Entry> entries = recorder.dump(null, 100);
+		assertEquals(4, entries.size());
+		assertEquals(5, entries.get(0).getSequence());
+		assertEquals(2, entries.get(3).getSequence());
+		Entry newest = entries.get(0);
+		assertEquals("ABCDEF", newest.getRoom());
+		assertEquals(RoomOperation.Type.ACTION, newest.getOperation());
+		assertEquals(ActionType.FILL, newest.getAction());
+		assertEquals(1, newest.getSeat());
+		assertEquals(5, newest.getRow());
+		assertEquals(3, newest.getCol());
+		assertEquals(9, newest.getValue());
+		assertEquals(Outcome.APPLIED, newest.getOutcome());
+		assertEquals(Integer.toHexString("s5".hashCode()), newest.getSession());
+		assertEquals(1, newest.getDurationMicros());
+
+		assertEquals(2, recorder.dump(null, 2).size());
+		assertEquals(4, recorder.dump(null, 2).get(1).getSequence());
+	}
+
+	@Test
+	void filtersByRoomAndMatchesNothingForInvalidCodes() {
+		ActionFlightRecorder recorder = new ActionFlightRecorder(16);
+		recorder.record(RoomOperation.Type.JOIN, "ABCDEF", 0, Outcome.APPLIED, "a", 0);
+		recorder.record(RoomOperation.Type.JOIN, "ZZZZZZ", -1, Outcome.IGNORED, "b", 0);
+		recorder.record(RoomOperation.Type.LEAVE, "ABCDEF", 0, Outcome.APPLIED, "a", 0);
+
+		List<Entry> entries = recorder.dump("ABCDEF", 100);
+		assertEquals(2, entries.size());
+		assertEquals(RoomOperation.Type.LEAVE, entries.get(0).getOperation());
+		assertNull(entries.get(0).getAction());
+		assertEquals(1, recorder.dump("ZZZZZZ", 100).size());
+		assertNull(recorder.dump("ZZZZZZ", 100).get(0).getSeat());
+		assertTrue(recorder.dump("abcdef", 100).isEmpty());
+		assertTrue(recorder.dump("ABCDE", 100).isEmpty());
+		assertTrue(recorder.dump("ABCDEI", 100).isEmpty());
+		assertTrue(recorder.dump("000000", 100).isEmpty());
+	}
+
+	@Test
+	void readersNeverSeeHalfWrittenEntries() throws Exception {
+		ActionFlightRecorder recorder = new ActionFlightRecorder(64);
+		Thread[] writers = new Thread[4];
+		for (int w = 0; w < writers.length; w++) {
+			int tag = w + 1;
+			writers[w] = new Thread(() -> {
+				for (int i = 0; i < 200_000; i++)
+					recorder.recordAction("ABCDEF", ActionType.FILL, tag, tag, tag, tag, Outcome.APPLIED, "w" + tag,
+							tag * 1000L);
+			});
+			writers[w].start();
+		}
+		int checked = 0;
+		while (writers[0].isAlive() || checked == 0) {
+			for (Entry entry : recorder.dump(null, 64)) {
+				// every field of an entry comes from the same writer
+				int tag = entry.getSeat();
+				assertEquals(tag, entry.getRow());
+				assertEquals(tag, entry.getCol());
+				assertEquals(tag, entry.getValue());
+				assertEquals(tag, entry.getDurationMicros());
+				assertEquals(Integer.toHexString(("w" + tag).hashCode()), entry.getSession());
+				checked++;
+			}
+		}
+		for (Thread writer : writers)
+			writer.join();
+		assertTrue(checked > 0);
+	}
+
+	@Test
+	void readersNeverSeeAnEntryMixedWithTheOneItOverwrote() throws Exception {
+		ActionFlightRecorder recorder = new ActionFlightRecorder(8);
+		int writes = 2_000_000;
+		// one writer laps the small ring constantly; each entry's fields derive from its sequence
+		Thread writer = new Thread(() -> {
+			for (int i = 0; i < writes; i++)
+				recorder.recordAction("ABCDEF", ActionType.FILL, i & 0xF, i & 0xF, (i >> 4) & 0xF, (i >> 8) & 0xF,
+						Outcome.APPLIED, "s" + (i & 0xFF), i * 1000L);
+		});
+		writer.start();
+		int checked = 0;
+		while (writer.isAlive() || checked == 0) {
+			for (Entry entry : recorder.dump(null, 8)) {
+				int i = (int) entry.getSequence();
+				assertEquals(i, entry.getDurationMicros());
+				assertEquals(i & 0xF, entry.getSeat());
+				assertEquals(i & 0xF, entry.getRow());
+				assertEquals((i >> 4) & 0xF, entry.getCol());
+				assertEquals((i >> 8) & 0xF, entry.getValue());
+				assertEquals(Integer.toHexString(("s" + (i & 0xFF)).hashCode()), entry.getSession());
+				checked++;
+			}
+		}
+		writer.join();
+		assertTrue(checked > 0);
+	}
+
+	@Test
+	void recordsNothingWhenDisabled() {
+		ActionFlightRecorder recorder = new ActionFlightRecorder(0);
+		recorder.record(RoomOperation.Type.START, "ABCDEF", 0, Outcome.APPLIED, "a", 0);
+		assertTrue(recorder.dump(null, 100).isEmpty());
+	}
+}
@@ -0,0 +1,91 @@
+package com.em.multiplayersudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ConflatingWebSocketSessionTests {
+
+	private final ExecutorService sender = Executors.newSingleThreadExecutor();
+	private final GameMetrics metrics = new GameMetrics(new SimpleMeterRegistry());
+
+	@AfterEach
+	void shutdown() {
+		sender.shutdownNow();
+	}
+
+	@Test
+	void newerSnapshotReplacesQueuedBoardFrames() throws Exception {
+		CountDownLatch firstWrite = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		List<String> written = new CopyOnWriteArrayList<>();
+		WebSocketSession delegate = mock(WebSocketSession.class);
+		when(delegate.getId()).thenReturn("s1");
+		doAnswer(invocation -> {
+			WebSocketMessage<?> message = invocation.getArgument(0);
+			String payload = (String) message.getPayload();
+			written.add(payload.substring(payload.indexOf("\n\n") + 2, payload.length() - 1));
+			if (written.size() == 1) {
+				firstWrite.countDown();
+				release.await(5, TimeUnit.SECONDS);
+			}
+			return null;
+		}).when(delegate).sendMessage(any());
+
+		ConflatingWebSocketSession session = new ConflatingWebSocketSession(delegate, sender, 10_000, 1 << 20,
+				metrics);
+		session.sendMessage(frame("/topic/room/A", "delta", "d1"));
+		firstWrite.await(5, TimeUnit.SECONDS);
+		// queued behind the blocked write
+		session.sendMessage(frame("/topic/room/A", "delta", "d2"));
+		session.sendMessage(frame("/topic/room/A", "snapshot", "s1"));
+		session.sendMessage(frame("/topic/room/A", null, "win"));
+		session.sendMessage(frame("/topic/room/B", "delta", "other"));
+		session.sendMessage(frame("/topic/room/A", "snapshot", "s2"));
+		release.countDown();
+
+		sender.shutdown();
+		sender.awaitTermination(5, TimeUnit.SECONDS);
+		assertEquals(List.of("d1", "win", "other", "s2"), written);
+	}
+
+	@Test
+	void closesSessionOverBufferLimit() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		WebSocketSession delegate = mock(WebSocketSession.class);
+		when(delegate.getId()).thenReturn("s1");
+		doAnswer(invocation -> release.await(5, TimeUnit.SECONDS)).when(delegate).sendMessage(any());
+
+		ConflatingWebSocketSession session = new ConflatingWebSocketSession(delegate, sender, 10_000, 200, metrics);
+		for (int i = 0; i < 10; i++)
+			session.sendMessage(frame("/topic/room/A", "delta", "d" + i));
+		release.countDown();
+
+		verify(delegate).close(CloseStatus.SESSION_NOT_RELIABLE);
+	}
+
+	private static TextMessage frame(String destination, String kind, String body) {
+		String headers = "MESSAGE\n" + (kind != null ? "x-conflate:" + kind + "\n" : "") + "destination:"
+				+ destination + "\n\n";
+		return new TextMessage(headers + body + "\0");
+	}
+}
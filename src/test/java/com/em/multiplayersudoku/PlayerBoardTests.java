@@ -0,0 +1,106 @@
+package com.em.multiplayersudoku;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.em.multiplayersudoku.domain.PlayerBoard;
+import com.em.multiplayersudoku.domain.Puzzle;
+
+class PlayerBoardTests {
+
+	private final Puzzle puzzle = new SudokuGenerator(11).generate(30);
+
+	@Test
+	void packsValueAndStatusPerCell() {
+		PlayerBoard board = new PlayerBoard(puzzle);
+		int[] empty = firstEmptyCell();
+		int solution = puzzle.getSolution(empty[0], empty[1]);
+		int wrong = solution % 9 + 1;
+		assertEquals(CellStatus.TO_GUESS, board.getStatus(empty[0], empty[1]));
+
+		board.setValue(empty[0], empty[1], wrong);
+		assertEquals(wrong, board.getValue(empty[0], empty[1]));
+		assertEquals(CellStatus.WRONG_GUESS, board.getStatus(empty[0], empty[1]));
+		board.setValue(empty[0], empty[1], 9);
+		assertEquals(9, board.getValue(empty[0], empty[1]));
+
+		for (int row = 0; row < 9; row++) {
+			for (int col = 0; col < 9; col++) {
+				if (puzzle.getGiven(row, col) != 0) {
+					assertEquals(puzzle.getGiven(row, col), board.getValue(row, col));
+					assertEquals(CellStatus.GIVEN, board.getStatus(row, col));
+				}
+			}
+		}
+		PlayerBoard copy = new PlayerBoard(puzzle, board.copyPackedCells());
+		assertArrayEquals(board.copyPackedCells(), copy.copyPackedCells());
+		assertEquals(board.getCorrectCount(), copy.getCorrectCount());
+		assertEquals(board.getWrongCount(), copy.getWrongCount());
+	}
+
+	@Test
+	void keepsCountsThroughWrongClearAndRefill() {
+		PlayerBoard board = new PlayerBoard(puzzle);
+		int[] empty = firstEmptyCell();
+		int solution = puzzle.getSolution(empty[0], empty[1]);
+
+		board.setValue(empty[0], empty[1], solution % 9 + 1);
+		assertEquals(0, board.getCorrectCount());
+		assertEquals(1, board.getWrongCount());
+		board.setValue(empty[0], empty[1], 0);
+		assertEquals(0, board.getWrongCount());
+		board.setValue(empty[0], empty[1], solution);
+		assertEquals(1, board.getCorrectCount());
+
+		// filling every other cell correctly completes the board
+		for (int row = 0; row < 9; row++) {
+			for (int col = 0; col < 9; col++) {
+				if (puzzle.getGiven(row, col) == 0 && (row != empty[0] || col != empty[1]))
+					board.setValue(row, col, puzzle.getSolution(row, col));
+			}
+		}
+		assertTrue(board.isComplete());
+		assertEquals(emptyCellCount(), board.getCorrectCount());
+		board.setValue(empty[0], empty[1], 0);
+		assertFalse(board.isComplete());
+		board.setValue(empty[0], empty[1], solution);
+		assertTrue(board.isComplete());
+	}
+
+	@Test
+	void rejectsCellsAndValuesOffTheBoard() {
+		PlayerBoard board = new PlayerBoard(puzzle);
+		int[] empty = firstEmptyCell();
+		int solution = puzzle.getSolution(empty[0], empty[1]);
+		assertThrows(IllegalArgumentException.class, () -> board.setValue(empty[0], empty[1], solution + 16));
+		assertThrows(IllegalArgumentException.class, () -> board.setValue(empty[0], empty[1], -1));
+		assertThrows(IllegalArgumentException.class, () -> board.setValue(0, 80, 1));
+		assertThrows(IllegalArgumentException.class, () -> board.setValue(9, 0, 1));
+		assertEquals(0, board.getValue(empty[0], empty[1]));
+		assertEquals(0, board.getWrongCount());
+	}
+
+	private int[] firstEmptyCell() {
+		for (int index = 0; index < 81; index++) {
+			if (puzzle.getGiven(index / 9, index % 9) == 0)
+				return new int[] { index / 9, index % 9 };
+		}
+		throw new IllegalStateException("No empty cell");
+	}
+
+	private int emptyCellCount() {
+		int empty = 0;
+		for (int row = 0; row < 9; row++) {
+			for (int col = 0; col < 9; col++) {
+				if (puzzle.getGiven(row, col) == 0)
+					empty++;
+			}
+		}
+		return empty;
+	}
+}
@@ -0,0 +1,40 @@
+package com.em.multiplayersudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.em.multiplayersudoku.domain.Difficulty;
+import com.em.multiplayersudoku.domain.Puzzle;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PuzzlePoolTests {
+
+	@Test
+	void answersAMissAsynchronouslyAndAHitAtOnce() throws Exception {
+		PuzzlePool pool = new PuzzlePool(2, 1, 1, new GameMetrics(new SimpleMeterRegistry()));
+		try {
+			// not prefilled: the first take misses, and the puzzle is generated on the pool's own thread
+			CompletableFuture<Puzzle> missed = pool.take(Difficulty.EASY);
+			assertEquals(1, pool.getMisses());
+			assertNotNull(missed.get(10, TimeUnit.SECONDS));
+
+			// the miss scheduled a refill; once it lands a take is answered at once
+			long deadline = System.currentTimeMillis() + 10_000;
+			while (pool.getAvailable(Difficulty.EASY) < 2 && System.currentTimeMillis() < deadline)
+				Thread.sleep(10);
+			CompletableFuture<Puzzle> hit = pool.take(Difficulty.EASY);
+			assertTrue(hit.isDone());
+			assertNotNull(hit.get());
+			assertEquals(1, pool.getHits());
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
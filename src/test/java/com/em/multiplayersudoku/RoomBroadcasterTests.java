@@ -0,0 +1,288 @@
+package com.em.multiplayersudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.em.multiplayersudoku.domain.Difficulty;
+import com.em.multiplayersudoku.domain.PlayerSlot;
+import com.em.multiplayersudoku.domain.Puzzle;
+import com.em.multiplayersudoku.domain.Room;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class RoomBroadcasterTests {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final Puzzle puzzle = new SudokuGenerator(5).generate(30);
+	private final RoomExecutor roomExecutor = new RoomExecutor(1);
+	// every frame handed to the broker, in order
+	private final List<Message<?>> sent = new CopyOnWriteArrayList<>();
+	// sends to this destination wait for the latch, like a broker stuck on a slow session
+	private volatile String stalledDestination;
+	private final CountDownLatch stall = new CountDownLatch(1);
+
+	@AfterEach
+	void stopExecutor() {
+		roomExecutor.shutdown();
+	}
+
+	@Test
+	void numbersDeltasAndSnapshotsInOneSequence() throws Exception {
+		RoomBroadcaster broadcaster = broadcaster(0, 500);
+		Room room = startedRoom();
+		room.addPlayer("c");
+		room.useCompactEncoding("c");
+		PlayerSlot a = room.getPlayer("a");
+		int[] cell = emptyCell(0);
+
+		fill(room, a, cell);
+		broadcaster.broadcastCellChange(room, a, cell[0], cell[1], null);
+		broadcaster.broadcastCellChange(room, a, cell[0], cell[1], null);
+		broadcaster.broadcastSnapshot(room);
+
+		// both encodings get every message, under the same sequence number
+		assertEquals(6, sent.size());
+		for (int i = 0; i < 6; i++) {
+			assertEquals(i % 2 == 0 ? "/topic/room/ABCDEF" : "/topic/room/ABCDEF/compact", destination(sent.get(i)));
+			assertEquals(i / 2 + 1, payload(sent.get(i)).get("seq").asLong());
+		}
+		JsonNode delta = payload(sent.get(0));
+		assertEquals(1, delta.get("cells").size());
+		assertEquals(puzzle.getSolution(cell[0], cell[1]), delta.get("cells").get(0).get("value").asInt());
+		assertEquals(1, delta.get("filledCounts").get("a").asInt());
+		assertTrue(payload(sent.get(4)).has("boards"));
+		assertTrue(payload(sent.get(5)).has("compactBoards"));
+
+		// a client that saw a gap gets the current state, without using up a sequence number
+		sent.clear();
+		broadcaster.sendSnapshot(room, "a");
+		assertEquals(1, sent.size());
+		assertEquals("/user/a/queue/room/ABCDEF", destination(sent.get(0)));
+		JsonNode snapshot = payload(sent.get(0));
+		assertEquals(3, snapshot.get("seq").asLong());
+		assertEquals(1, snapshot.get("filledCounts").get("a").asInt());
+		assertEquals(3, room.getSequence());
+	}
+
+	@Test
+	void sendsOneMessagePerWindowWithTheLatestState() throws Exception {
+		RoomBroadcaster broadcaster = broadcaster(100, 500);
+		Room room = startedRoom();
+		PlayerSlot a = room.getPlayer("a");
+		PlayerSlot b = room.getPlayer("b");
+		int[] first = emptyCell(0);
+		int[] second = emptyCell(1);
+		runOnShard(room, () -> {
+			// a wrong value, then the right one, on the same cell
+			int wrong = puzzle.getSolution(first[0], first[1]) % 9 + 1;
+			room.updateCellForPlayer(a, first[0], first[1], wrong);
+			broadcaster.broadcastCellChange(room, a, first[0], first[1], null);
+			fill(room, a, first);
+			broadcaster.broadcastCellChange(room, a, first[0], first[1], null);
+			fill(room, a, second);
+			broadcaster.broadcastCellChange(room, a, second[0], second[1], null);
+			room.recordRemoveUse(b);
+			broadcaster.broadcastCellChange(room, a, second[0], second[1], b);
+			fill(room, b, first);
+			broadcaster.broadcastCellChange(room, b, first[0], first[1], null);
+		});
+
+		assertTrue(awaitSent(1));
+		Thread.sleep(300);
+		assertEquals(1, sent.size());
+		JsonNode delta = payload(sent.get(0));
+		assertEquals(1, delta.get("seq").asLong());
+		assertEquals(3, delta.get("cells").size());
+		for (JsonNode change : delta.get("cells")) {
+			assertEquals(puzzle.getSolution(change.get("row").asInt(), change.get("col").asInt()),
+					change.get("value").asInt());
+		}
+		assertEquals(2, delta.get("filledCounts").get("a").asInt());
+		assertEquals(1, delta.get("filledCounts").get("b").asInt());
+		assertEquals(2, delta.get("maxFilled").asInt());
+		assertTrue(delta.get("removeCooldownUntilMap").has("b"));
+		assertFalse(delta.get("removeCooldownUntilMap").has("a"));
+
+		// a snapshot asked for in the same window replaces the queued cells
+		sent.clear();
+		int[] third = emptyCell(2);
+		runOnShard(room, () -> {
+			fill(room, b, third);
+			broadcaster.broadcastCellChange(room, b, third[0], third[1], null);
+			broadcaster.broadcastSnapshot(room);
+		});
+		assertTrue(awaitSent(1));
+		Thread.sleep(300);
+		assertEquals(1, sent.size());
+		JsonNode snapshot = payload(sent.get(0));
+		assertEquals(2, snapshot.get("seq").asLong());
+		assertTrue(snapshot.has("boards"));
+		assertEquals(2, snapshot.get("filledCounts").get("b").asInt());
+	}
+
+	@Test
+	void throttlesSpectatorFramesToTheInterval() throws Exception {
+		RoomBroadcaster broadcaster = broadcaster(0, 200);
+		Room room = startedRoom();
+		PlayerSlot a = room.getPlayer("a");
+		int[] cell = emptyCell(0);
+		runOnShard(room, () -> {
+			fill(room, a, cell);
+			broadcaster.broadcastCellChange(room, a, cell[0], cell[1], null);
+		});
+		Thread.sleep(300);
+		assertEquals(0, spectatorFrames().size());
+
+		room.addSpectator();
+		int moves = 40;
+		long started = System.currentTimeMillis();
+		for (int n = 1; n <= moves; n++) {
+			int[] next = emptyCell(n);
+			runOnShard(room, () -> {
+				fill(room, a, next);
+				broadcaster.broadcastCellChange(room, a, next[0], next[1], null);
+			});
+			Thread.sleep(25);
+		}
+		long elapsed = System.currentTimeMillis() - started;
+		Thread.sleep(500);
+
+		// players got every move, spectators one frame per interval at most
+		assertEquals(1 + moves, sent.size() - spectatorFrames().size());
+		List<Message<?>> frames = spectatorFrames();
+		assertTrue(frames.size() >= 2, "frames: " + frames.size());
+		assertTrue(frames.size() <= elapsed / 200 + 2, "frames: " + frames.size() + " in " + elapsed + " ms");
+		// the last frame caught up with the last move
+		JsonNode last = payload(frames.get(frames.size() - 1));
+		assertEquals(1 + moves, last.get("filledCounts").get("a").asInt());
+		assertTrue(last.has("boards"));
+	}
+
+	@Test
+	void aStalledSpectatorFanoutHoldsBackOnlyItsOwnRoom() throws Exception {
+		RoomBroadcaster broadcaster = broadcaster(0, 50);
+		Room slow = startedRoom();
+		Room other = new Room("GHJKMN", Difficulty.EASY, 2, 10);
+		other.addPlayer("x");
+		other.start(() -> puzzle);
+		slow.addSpectator();
+		other.addSpectator();
+		stalledDestination = RoomBroadcaster.spectateTopic(slow.getCode());
+		PlayerSlot a = slow.getPlayer("a");
+		PlayerSlot x = other.getPlayer("x");
+
+		for (int n = 0; n < 5; n++) {
+			int[] next = emptyCell(n);
+			runOnShard(slow, () -> {
+				fill(slow, a, next);
+				broadcaster.broadcastCellChange(slow, a, next[0], next[1], null);
+			});
+			runOnShard(other, () -> {
+				fill(other, x, next);
+				broadcaster.broadcastCellChange(other, x, next[0], next[1], null);
+			});
+			Thread.sleep(100);
+		}
+		// the other room kept getting frames while the first one is stuck
+		assertTrue(framesTo(RoomBroadcaster.spectateTopic(other.getCode())).size() >= 3);
+		assertEquals(0, framesTo(stalledDestination).size());
+
+		// once unstuck, the room catches up with one frame carrying the latest state
+		stall.countDown();
+		Thread.sleep(300);
+		List<Message<?>> frames = framesTo(stalledDestination);
+		assertEquals(2, frames.size());
+		assertEquals(5, payload(frames.get(1)).get("filledCounts").get("a").asInt());
+	}
+
+	private RoomBroadcaster broadcaster(long coalesceWindowMillis, long spectateIntervalMillis) {
+		SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> {
+			if (destination(message).equals(stalledDestination)) {
+				try {
+					stall.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return sent.add(message);
+		});
+		template.setMessageConverter(new MappingJackson2MessageConverter());
+		RoomBroadcaster broadcaster = new RoomBroadcaster();
+		ReflectionTestUtils.setField(broadcaster, "messagingTemplate", template);
+		ReflectionTestUtils.setField(broadcaster, "roomExecutor", roomExecutor);
+		ReflectionTestUtils.setField(broadcaster, "coalesceWindowMillis", coalesceWindowMillis);
+		ReflectionTestUtils.setField(broadcaster, "spectateIntervalMillis", spectateIntervalMillis);
+		return broadcaster;
+	}
+
+	private Room startedRoom() {
+		Room room = new Room("ABCDEF", Difficulty.EASY, 2, 10, 4);
+		room.addPlayer("a");
+		room.addPlayer("b");
+		room.start(() -> puzzle);
+		return room;
+	}
+
+	// the n-th cell that is not given
+	private int[] emptyCell(int n) {
+		for (int index = 0; index < 81; index++) {
+			if (puzzle.getGiven(index / 9, index % 9) == 0 && n-- == 0)
+				return new int[] { index / 9, index % 9 };
+		}
+		throw new IllegalStateException("no empty cell");
+	}
+
+	private void fill(Room room, PlayerSlot player, int[] cell) {
+		room.updateCellForPlayer(player, cell[0], cell[1], puzzle.getSolution(cell[0], cell[1]));
+	}
+
+	private List<Message<?>> framesTo(String destination) {
+		return sent.stream().filter(message -> destination(message).equals(destination)).toList();
+	}
+
+	private List<Message<?>> spectatorFrames() {
+		return sent.stream().filter(message -> destination(message).endsWith("/spectate")).toList();
+	}
+
+	private boolean awaitSent(int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (sent.size() < count) {
+			if (System.currentTimeMillis() > deadline)
+				return false;
+			Thread.sleep(10);
+		}
+		return true;
+	}
+
+	private void runOnShard(Room room, Runnable task) throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(1);
+		roomExecutor.execute(room.getCode(), () -> {
+			task.run();
+			done.countDown();
+		});
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+
+	private static String destination(Message<?> message) {
+		return SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+	}
+
+	private static JsonNode payload(Message<?> message) throws Exception {
+		return MAPPER.readTree((byte[]) message.getPayload());
+	}
+}
@@ -0,0 +1,75 @@
+package com.em.multiplayersudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RoomCodeAllocatorTests {
+
+	private static final long MASK = (1L << 30) - 1;
+
+	@Test
+	void neverRepeatsACodeAcrossTheCounterWrap() {
+		RoomCodeAllocator allocator = new RoomCodeAllocator();
+		// start just below the wrap so the window covers it
+		ReflectionTestUtils.setField(allocator, "counter", new AtomicLong(MASK - 1000));
+		BitSet seen = new BitSet(1 << 30);
+		for (int i = 0; i < 1 << 20; i++) {
+			String code = allocator.next();
+			assertTrue(code.matches(RoomCodeAllocator.CODE_REGEX), code);
+			int bits = (int) RoomCodeAllocator.toBits(code);
+			assertFalse(seen.get(bits), code);
+			seen.set(bits);
+		}
+	}
+
+	@Test
+	void twoAllocatorsDoNotFollowTheSameSequence() {
+		RoomCodeAllocator first = new RoomCodeAllocator();
+		RoomCodeAllocator second = new RoomCodeAllocator();
+		ReflectionTestUtils.setField(first, "counter", new AtomicLong());
+		ReflectionTestUtils.setField(second, "counter", new AtomicLong());
+		StringBuilder a = new StringBuilder();
+		StringBuilder b = new StringBuilder();
+		for (int i = 0; i < 4; i++) {
+			a.append(first.next());
+			b.append(second.next());
+		}
+		assertFalse(a.toString().equals(b.toString()));
+	}
+
+	@Test
+	void bitsRoundTrip() {
+		for (long bits : new long[] { 0, 1, 31, 32, 12345678, MASK - 1, MASK }) {
+			String code = RoomCodeAllocator.fromBits(bits);
+			assertEquals(RoomCodeAllocator.CODE_LENGTH, code.length());
+			assertEquals(bits, RoomCodeAllocator.toBits(code));
+			assertEquals(code, RoomCodeAllocator.fromBits(RoomCodeAllocator.toBits(code)));
+		}
+		assertEquals("000000", RoomCodeAllocator.fromBits(0));
+		assertEquals("ZZZZZZ", RoomCodeAllocator.fromBits(MASK));
+	}
+
+	@Test
+	void acceptsExactlyTheCrockfordAlphabet() {
+		String alphabet = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+		for (char c = 0; c < 256; c++) {
+			String code = "00000" + c;
+			boolean valid = alphabet.indexOf(c) >= 0;
+			assertEquals(valid, code.matches(RoomCodeAllocator.CODE_REGEX), code);
+			assertEquals(valid, RoomCodeAllocator.toBits(code) >= 0, code);
+			if (valid)
+				assertEquals(alphabet.indexOf(c), RoomCodeAllocator.toBits(code));
+		}
+		assertEquals(-1, RoomCodeAllocator.toBits(null));
+		assertEquals(-1, RoomCodeAllocator.toBits("00000"));
+		assertEquals(-1, RoomCodeAllocator.toBits("0000000"));
+		assertFalse("0000000".matches(RoomCodeAllocator.CODE_REGEX));
+	}
+}
@@ -0,0 +1,93 @@
+package com.em.multiplayersudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import com.em.multiplayersudoku.domain.Difficulty;
+import com.em.multiplayersudoku.domain.PlayerSlot;
+import com.em.multiplayersudoku.domain.Puzzle;
+import com.em.multiplayersudoku.domain.Room;
+import com.em.multiplayersudoku.domain.RoomState;
+
+class RoomJournalTests {
+
+	@TempDir
+	Path directory;
+
+	private final RoomExecutor roomExecutor = new RoomExecutor(1);
+
+	@Test
+	void recoversRoomsAfterRestart() throws Exception {
+		Puzzle puzzle = new SudokuGenerator(42).generate(30);
+		int row = -1;
+		int col = -1;
+		for (int index = 0; index < 81 && row < 0; index++) {
+			if (puzzle.getGiven(index / 9, index % 9) == 0) {
+				row = index / 9;
+				col = index % 9;
+			}
+		}
+
+		RoomStore store = new InMemoryRoomStore("a");
+		RoomJournal journal = journal(store);
+		assertTrue(journal.recover().isEmpty());
+		journal.start();
+		Room room = new Room("ABCDEF", Difficulty.EASY, 5, 10);
+		store.add(room);
+		journal.roomCreated(room);
+		int value = puzzle.getSolution(row, col);
+		int cellRow = row;
+		int cellCol = col;
+		runOnShard(room, () -> {
+			room.addPlayer("s1");
+			journal.seated(room, 0);
+			room.start(() -> puzzle);
+			journal.started(room);
+			PlayerSlot player = room.getPlayer("s1");
+			room.updateCellForPlayer(player, cellRow, cellCol, value);
+			journal.cellChanged(room, 0, cellRow, cellCol, value);
+		});
+		journal.stop();
+
+		List<Room> recovered = journal(new InMemoryRoomStore("a")).recover();
+		assertEquals(1, recovered.size());
+		Room restored = recovered.get(0);
+		assertEquals("ABCDEF", restored.getCode());
+		assertEquals(RoomState.RUNNING, restored.getState());
+		assertEquals(0, restored.getPlayerCount());
+		// the next player in the seat picks up the board as it was
+		assertTrue(restored.addPlayer("s2"));
+		PlayerSlot player = restored.getPlayer("s2");
+		assertNotNull(player.getBoard());
+		assertEquals(value, player.getBoard().getValue(row, col));
+		assertEquals(1, player.getFilledCellCount());
+	}
+
+	private RoomJournal journal(RoomStore store) {
+		RoomJournal journal = new RoomJournal(true, directory, DataSize.ofKilobytes(64), 1, Duration.ofHours(1));
+		ReflectionTestUtils.setField(journal, "roomStore", store);
+		ReflectionTestUtils.setField(journal, "roomExecutor", roomExecutor);
+		return journal;
+	}
+
+	private void runOnShard(Room room, Runnable task) throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(1);
+		roomExecutor.execute(room.getCode(), () -> {
+			task.run();
+			done.countDown();
+		});
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,164 @@
+package com.em.multiplayersudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import com.em.multiplayersudoku.domain.Difficulty;
+import com.em.multiplayersudoku.domain.PlayerBoard;
+import com.em.multiplayersudoku.domain.Room;
+import com.em.multiplayersudoku.domain.RoomState;
+
+class RoomServiceTests {
+
+	@TempDir
+	Path directory;
+
+	private final RoomExecutor roomExecutor = new RoomExecutor(1);
+
+	@AfterEach
+	void stopExecutor() {
+		roomExecutor.shutdown();
+	}
+
+	@Test
+	void countsSessionsOnlyOnceSeated() {
+		RoomService roomService = new RoomService();
+		// a JOIN to a full room asks for a seat but never gets one
+		roomService.requestSeat("s1", "AAAAAA");
+		assertEquals(0, roomService.getSeatedPlayerCount());
+
+		roomService.requestSeat("s1", "BBBBBB");
+		assertNull(roomService.trackSession("s1", "BBBBBB"));
+		assertEquals(1, roomService.getSeatedPlayerCount());
+
+		// moving on reports the room to leave
+		roomService.requestSeat("s1", "CCCCCC");
+		assertEquals("BBBBBB", roomService.trackSession("s1", "CCCCCC"));
+		assertEquals(List.of("CCCCCC"), roomService.untrackSession("s1"));
+		assertEquals(0, roomService.getSeatedPlayerCount());
+	}
+
+	@Test
+	void leaveBeforeTheSeatIsTakenCoversTheRequestedRoom() {
+		RoomService roomService = new RoomService();
+		roomService.requestSeat("s1", "AAAAAA");
+		assertNull(roomService.trackSession("s1", "AAAAAA"));
+		roomService.requestSeat("s1", "BBBBBB");
+		// disconnected while the JOIN to BBBBBB is still queued on its shard
+		assertEquals(List.of("AAAAAA", "BBBBBB"), roomService.untrackSession("s1"));
+		// the seat taken afterwards is not tracked and is left again
+		assertEquals("BBBBBB", roomService.trackSession("s1", "BBBBBB"));
+		assertEquals(0, roomService.getSeatedPlayerCount());
+	}
+
+	@Test
+	void aSeatOnlyAnswersTheRequestItWasTakenFor() {
+		RoomService roomService = new RoomService();
+		roomService.requestSeat("s1", "AAAAAA");
+		assertNull(roomService.trackSession("s1", "AAAAAA"));
+		// the request is used up: a second seat without a request of its own is left again
+		assertEquals("BBBBBB", roomService.trackSession("s1", "BBBBBB"));
+		assertEquals(List.of("AAAAAA"), roomService.untrackSession("s1"));
+
+		// asked for AAAAAA, then BBBBBB before the first seat was taken
+		roomService.requestSeat("s2", "AAAAAA");
+		roomService.requestSeat("s2", "BBBBBB");
+		assertEquals("AAAAAA", roomService.trackSession("s2", "AAAAAA"));
+		assertNull(roomService.trackSession("s2", "BBBBBB"));
+		assertEquals(List.of("BBBBBB"), roomService.untrackSession("s2"));
+	}
+
+	@Test
+	void removingARoomDropsRequestsForIt() {
+		RoomService roomService = roomService(Duration.ofHours(1), Duration.ofHours(1));
+		String code = roomService.createRoom(Difficulty.EASY, 5, 10, 2);
+		roomService.requestSeat("s1", code);
+		roomService.removeRoom(roomService.getRoom(code));
+		assertTrue(roomService.untrackSession("s1").isEmpty());
+	}
+
+	@Test
+	void evictsAnEmptyRoomAfterTheEmptyTimeout() throws Exception {
+		RoomService roomService = roomService(Duration.ofHours(1), Duration.ofMillis(200));
+		roomService.createRoom(Difficulty.EASY, 5, 10, 2);
+		roomService.evictExpiredRooms();
+		assertEquals(1, roomService.getRoomCount());
+
+		// the wheel ticks once a second
+		assertTrue(evictAll(roomService, 5000));
+		assertEquals(1, roomService.getEmptyEvictions());
+		assertEquals(0, roomService.getIdleEvictions());
+	}
+
+	@Test
+	void activityPushesTheIdleDeadlineBack() throws Exception {
+		RoomService roomService = roomService(Duration.ofMillis(1500), Duration.ofHours(1));
+		Room room = roomService.getRoom(roomService.createRoom(Difficulty.EASY, 5, 10, 2));
+		runOnShard(room, () -> room.addPlayer("s1"));
+		Thread.sleep(1000);
+		long touched = System.currentTimeMillis();
+		runOnShard(room, room::touch);
+
+		// the first deadline passes with the room alive: it is scheduled again, not evicted
+		assertTrue(evictAll(roomService, 5000));
+		assertTrue(System.currentTimeMillis() - touched >= 1500);
+		assertEquals(1, roomService.getIdleEvictions());
+	}
+
+	@Test
+	void recoveredRoomsGetTheIdleTimeout() {
+		Room room = new Room("ABCDEF", Difficulty.EASY, 5, 10);
+		assertTrue(room.getEmptySince() > 0);
+		room.restore(RoomState.RUNNING, null, new PlayerBoard[2], 7);
+		assertEquals(0, room.getEmptySince());
+	}
+
+	private RoomService roomService(Duration idleTimeout, Duration emptyTimeout) {
+		RoomService roomService = new RoomService();
+		ReflectionTestUtils.setField(roomService, "roomStore", new InMemoryRoomStore("a"));
+		ReflectionTestUtils.setField(roomService, "roomExecutor", roomExecutor);
+		ReflectionTestUtils.setField(roomService, "roomCodeAllocator", new RoomCodeAllocator());
+		ReflectionTestUtils.setField(roomService, "roomJournal",
+				new RoomJournal(false, directory, DataSize.ofKilobytes(64), 1, Duration.ofHours(1)));
+		ReflectionTestUtils.setField(roomService, "idleTimeout", idleTimeout);
+		ReflectionTestUtils.setField(roomService, "emptyTimeout", emptyTimeout);
+		ReflectionTestUtils.setField(roomService, "finishedGrace", Duration.ofHours(1));
+		return roomService;
+	}
+
+	// drives the wheel like the scheduler does until no room is left
+	private static boolean evictAll(RoomService roomService, long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while (System.currentTimeMillis() < deadline) {
+			roomService.evictExpiredRooms();
+			if (roomService.getRoomCount() == 0)
+				return true;
+			Thread.sleep(50);
+		}
+		return false;
+	}
+
+	private void runOnShard(Room room, Runnable task) throws InterruptedException {
+		assertNotNull(room);
+		CountDownLatch done = new CountDownLatch(1);
+		roomExecutor.execute(room.getCode(), () -> {
+			task.run();
+			done.countDown();
+		});
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,176 @@
+package com.em.multiplayersudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.em.multiplayersudoku.domain.Difficulty;
+import com.em.multiplayersudoku.domain.PlayerBoard;
+import com.em.multiplayersudoku.domain.PlayerSlot;
+import com.em.multiplayersudoku.domain.Puzzle;
+import com.em.multiplayersudoku.domain.Room;
+import com.em.multiplayersudoku.domain.RoomState;
+
+class RoomTests {
+
+	private final Puzzle puzzle = new SudokuGenerator(7).generate(30);
+
+	@Test
+	void movesThroughTheLifecycleAndIgnoresAStartWhileRunning() {
+		Room room = new Room("ABCDEF", Difficulty.EASY, 2, 10);
+		room.addPlayer("a");
+		room.addPlayer("b");
+		assertEquals(RoomState.LOBBY, room.getState());
+		assertFalse(room.finish());
+		assertNull(room.getPlayer("a").getBoard());
+
+		AtomicInteger generated = new AtomicInteger();
+		assertTrue(room.start(() -> {
+			generated.incrementAndGet();
+			return puzzle;
+		}));
+		assertEquals(RoomState.RUNNING, room.getState());
+		PlayerBoard board = room.getPlayer("a").getBoard();
+		fill(room, room.getPlayer("a"), 2);
+
+		// a second start neither asks for a puzzle nor deals new boards
+		assertFalse(room.start(() -> {
+			generated.incrementAndGet();
+			return puzzle;
+		}));
+		assertEquals(1, generated.get());
+		assertSame(board, room.getPlayer("a").getBoard());
+		assertEquals(2, room.getPlayer("a").getFilledCellCount());
+
+		assertTrue(room.finish());
+		assertEquals(RoomState.FINISHED, room.getState());
+		assertTrue(room.getFinishedAt() > 0);
+		assertFalse(room.finish());
+
+		// a rematch from FINISHED deals fresh boards
+		assertTrue(room.start(() -> puzzle));
+		assertEquals(RoomState.RUNNING, room.getState());
+		assertEquals(0, room.getFinishedAt());
+		assertNotSame(board, room.getPlayer("a").getBoard());
+		assertEquals(0, room.getPlayer("a").getFilledCellCount());
+		assertEquals(0, room.getMaxFilledCount());
+	}
+
+	@Test
+	void standingsFollowEveryPlayerInALargeRoom() {
+		Room room = new Room("ABCDEF", Difficulty.MEDIUM, 2, 10, 4);
+		for (String id : new String[] { "a", "b", "c", "d", "e" })
+			room.addPlayer(id);
+		assertEquals(4, room.getPlayerCount());
+		room.start(() -> puzzle);
+		PlayerSlot a = room.getPlayer("a");
+		PlayerSlot b = room.getPlayer("b");
+		PlayerSlot c = room.getPlayer("c");
+		PlayerSlot d = room.getPlayer("d");
+		fill(room, a, 3);
+		fill(room, b, 1);
+		fill(room, d, 3);
+
+		assertEquals(3, room.getMaxFilledCount());
+		assertEquals(1, room.getRank(a));
+		assertEquals(1, room.getRank(d));
+		assertEquals(3, room.getRank(b));
+		assertEquals(4, room.getRank(c));
+
+		// any opponent at least two cells ahead can be targeted, not only one of the leaders
+		assertTrue(room.canRemoveCell(c, a));
+		assertTrue(room.canRemoveCell(c, d));
+		assertFalse(room.canRemoveCell(c, b));
+		assertTrue(room.canRemoveCell(b, a));
+		assertTrue(room.canRemoveOpponentCell(c));
+		assertFalse(room.canRemoveOpponentCell(a));
+
+		room.removePlayer("a");
+		assertEquals(3, room.getMaxFilledCount());
+		clearOne(room, d);
+		assertEquals(2, room.getMaxFilledCount());
+		assertFalse(room.canRemoveCell(b, d));
+		assertTrue(room.canRemoveCell(c, d));
+	}
+
+	@Test
+	void runningCountsMatchARecountOfTheBoards() {
+		Room room = new Room("ABCDEF", Difficulty.EASY, 2, 10, 3);
+		room.addPlayer("a");
+		room.addPlayer("b");
+		room.addPlayer("c");
+		room.start(() -> puzzle);
+		PlayerSlot[] players = { room.getPlayer("a"), room.getPlayer("b"), room.getPlayer("c") };
+		Random random = new Random(3);
+		for (int move = 0; move < 5000; move++) {
+			PlayerSlot player = players[random.nextInt(players.length)];
+			int row = random.nextInt(9);
+			int col = random.nextInt(9);
+			if (puzzle.getGiven(row, col) != 0)
+				continue;
+			// mostly right answers, so boards fill up, with wrong values and clears in between
+			int value = random.nextInt(3) == 0 ? random.nextInt(10) : puzzle.getSolution(row, col);
+			room.updateCellForPlayer(player, row, col, value);
+			assertCountsMatch(room, players);
+		}
+		room.fillSolutionForPlayer(players[1]);
+		assertCountsMatch(room, players);
+		assertTrue(room.isPlayerBoardComplete(players[1]));
+		assertEquals(1, room.getRank(players[1]));
+	}
+
+	private void assertCountsMatch(Room room, PlayerSlot[] players) {
+		int max = 0;
+		for (PlayerSlot player : players) {
+			PlayerBoard board = player.getBoard();
+			int correct = 0;
+			int wrong = 0;
+			boolean complete = true;
+			for (int row = 0; row < 9; row++) {
+				for (int col = 0; col < 9; col++) {
+					if (board.getStatus(row, col) == CellStatus.CORRECT_GUESS)
+						correct++;
+					if (board.getStatus(row, col) == CellStatus.WRONG_GUESS)
+						wrong++;
+					complete &= board.getValue(row, col) == puzzle.getSolution(row, col);
+				}
+			}
+			assertEquals(correct, player.getFilledCellCount());
+			assertEquals(wrong, player.getWrongCellCount());
+			assertEquals(complete, room.isPlayerBoardComplete(player));
+			max = Math.max(max, correct);
+		}
+		assertEquals(max, room.getMaxFilledCount());
+	}
+
+	// fills the first empty cells of the player's board with the solution
+	private void fill(Room room, PlayerSlot player, int cells) {
+		for (int index = 0; index < 81 && cells > 0; index++) {
+			int row = index / 9;
+			int col = index % 9;
+			if (puzzle.getGiven(row, col) == 0 && player.getBoard().getValue(row, col) == 0) {
+				room.updateCellForPlayer(player, row, col, puzzle.getSolution(row, col));
+				cells--;
+			}
+		}
+	}
+
+	private void clearOne(Room room, PlayerSlot player) {
+		for (int index = 0; index < 81; index++) {
+			int row = index / 9;
+			int col = index % 9;
+			if (puzzle.getGiven(row, col) == 0 && player.getBoard().getValue(row, col) != 0) {
+				room.updateCellForPlayer(player, row, col, 0);
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package com.em.multiplayersudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.SimpleMessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import com.em.multiplayersudoku.domain.Room;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.WebSocketContainer;
+
+/**
+ * Two application contexts joined through {@link SharedLocalRoomStore}: a room
+ * created on one node is played from both.
+ */
+class SharedLocalRoomStoreTests {
+
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+
+	private static ConfigurableApplicationContext nodeA;
+	private static ConfigurableApplicationContext nodeB;
+	private static WebSocketStompClient stompClient;
+
+	@BeforeAll
+	static void startNodes() {
+		nodeA = startNode("a");
+		nodeB = startNode("b");
+		WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+		container.setDefaultMaxTextMessageBufferSize(1024 * 1024);
+		stompClient = new WebSocketStompClient(new StandardWebSocketClient(container));
+		stompClient.setMessageConverter(new SimpleMessageConverter());
+		stompClient.setInboundMessageSizeLimit(1024 * 1024);
+	}
+
+	private static ConfigurableApplicationContext startNode(String nodeId) {
+		// arguments, as application.properties outranks builder default properties
+		return new SpringApplicationBuilder(MultiplayerSudokuApplication.class)
+				.run("--server.port=0", "--sudoku.room-store=shared-local", "--sudoku.node-id=" + nodeId,
+						"--sudoku.broadcast.coalesce-window-ms=0", "--sudoku.puzzle-pool.capacity=1");
+	}
+
+	@AfterAll
+	static void stopNodes() {
+		if (nodeB != null)
+			nodeB.close();
+		if (nodeA != null)
+			nodeA.close();
+	}
+
+	@Test
+	void roomOwnedByOneNodeIsPlayedFromBoth() throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl(nodeA) + "/api/room"))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString("{\"difficulty\":\"EASY\"}"))
+				.build();
+		JsonNode created = objectMapper.readTree(
+				HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString()).body());
+		String code = created.get("roomCode").asText();
+		assertEquals("a", created.get("nodeId").asText());
+
+		BlockingQueue<JsonNode> onA = new LinkedBlockingQueue<>();
+		BlockingQueue<JsonNode> onB = new LinkedBlockingQueue<>();
+		StompSession playerA = connect(nodeA, code, onA);
+		StompSession playerB = connect(nodeB, code, onB);
+
+		Room room = nodeA.getBean(RoomService.class).getRoom(code);
+		assertNotNull(room);
+		assertNull(nodeB.getBean(RoomService.class).getRoom(code));
+		assertTrue(nodeB.getBean(RoomService.class).roomExists(code));
+		for (int i = 0; i < 50 && room.getPlayerCount() < 2; i++)
+			Thread.sleep(100);
+		assertEquals(2, room.getPlayerCount());
+
+		// started from node B, applied on node A, broadcast back through both brokers
+		StompHeaders headers = new StompHeaders();
+		headers.setDestination("/app/room/" + code + "/start");
+		playerB.send(headers, new byte[0]);
+		JsonNode snapshotOnB = onB.poll(10, TimeUnit.SECONDS);
+		JsonNode snapshotOnA = onA.poll(10, TimeUnit.SECONDS);
+		assertNotNull(snapshotOnB);
+		assertNotNull(snapshotOnA);
+		assertEquals(2, snapshotOnB.get("playerCount").asInt());
+		assertEquals(2, snapshotOnB.get("boards").size());
+		assertEquals(snapshotOnA.get("seq").asLong(), snapshotOnB.get("seq").asLong());
+
+		playerA.disconnect();
+		playerB.disconnect();
+	}
+
+	private static StompSession connect(ConfigurableApplicationContext node, String code,
+			BlockingQueue<JsonNode> received) throws Exception {
+		String url = baseUrl(node).replaceFirst("^http", "ws") + "/ws/websocket";
+		StompSession session = stompClient.connectAsync(url, new StompSessionHandlerAdapter() {
+		}).get(10, TimeUnit.SECONDS);
+		session.subscribe("/topic/room/" + code, new StompFrameHandler() {
+			@Override
+			public Type getPayloadType(StompHeaders headers) {
+				return byte[].class;
+			}
+
+			@Override
+			public void handleFrame(StompHeaders headers, Object payload) {
+				try {
+					received.add(objectMapper.readTree((byte[]) payload));
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		});
+		return session;
+	}
+
+	private static String baseUrl(ConfigurableApplicationContext node) {
+		return "http://localhost:" + node.getEnvironment().getProperty("local.server.port");
+	}
+}
@@ -0,0 +1,56 @@
+package com.em.multiplayersudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class SudokuGeneratorTests {
+
+	private final SudokuGenerator generator = new SudokuGenerator();
+
+	@Test
+	void fillBoardProducesValidGrid() {
+		int[][] board = new int[SudokuGenerator.GRID_SIZE][SudokuGenerator.GRID_SIZE];
+		assertTrue(generator.fillBoard(board));
+		assertValidSolution(board);
+	}
+
+	@Test
+	void generatedPuzzleHasUniqueSolution() {
+		int[][] puzzle = generator.generatePuzzle(25);
+		int clues = 0;
+		for (int[] row : puzzle)
+			for (int value : row)
+				if (value != 0)
+					clues++;
+		assertTrue(clues >= 25);
+		assertEquals(1, generator.countSolutions(puzzle, 1));
+	}
+
+	@Test
+	void countSolutionsStopsAfterMaximum() {
+		int[][] empty = new int[SudokuGenerator.GRID_SIZE][SudokuGenerator.GRID_SIZE];
+		assertEquals(3, generator.countSolutions(empty, 2));
+		int[][] conflicting = new int[SudokuGenerator.GRID_SIZE][SudokuGenerator.GRID_SIZE];
+		conflicting[0][0] = 5;
+		conflicting[0][8] = 5;
+		assertEquals(0, generator.countSolutions(conflicting, 2));
+	}
+
+	private static void assertValidSolution(int[][] board) {
+		for (int i = 0; i < SudokuGenerator.GRID_SIZE; i++) {
+			int rowSeen = 0, colSeen = 0, boxSeen = 0;
+			for (int j = 0; j < SudokuGenerator.GRID_SIZE; j++) {
+				rowSeen |= 1 << board[i][j];
+				colSeen |= 1 << board[j][i];
+				int boxRow = (i / 3) * 3 + j / 3;
+				int boxCol = (i % 3) * 3 + j % 3;
+				boxSeen |= 1 << board[boxRow][boxCol];
+			}
+			assertEquals(0x3FE, rowSeen);
+			assertEquals(0x3FE, colSeen);
+			assertEquals(0x3FE, boxSeen);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.em.multiplayersudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTests {
+
+	// 8 buckets of 10 ms: one rotation is 80 ms
+	private final TimingWheel<String> wheel = new TimingWheel<>(10, 8, 0);
+	private final List<String> expired = new ArrayList<>();
+
+	@Test
+	void expiresEntriesAtTheirDeadline() {
+		wheel.schedule("a", 25);
+		wheel.schedule("b", 40);
+		wheel.advance(24, expired::add);
+		assertTrue(expired.isEmpty());
+		wheel.advance(30, expired::add);
+		assertEquals(List.of("a"), expired);
+		wheel.advance(40, expired::add);
+		assertEquals(List.of("a", "b"), expired);
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	void keepsDeadlinesBeyondOneRotationUntilTheirTurn() {
+		wheel.schedule("far", 250); // shares a bucket with ticks 1, 9 and 17
+		for (long now = 10; now < 250; now += 10)
+			wheel.advance(now, expired::add);
+		assertTrue(expired.isEmpty());
+		assertEquals(1, wheel.size());
+		wheel.advance(250, expired::add);
+		assertEquals(List.of("far"), expired);
+	}
+
+	@Test
+	void catchesUpAfterAStall() {
+		wheel.schedule("a", 15);
+		wheel.schedule("b", 75);
+		wheel.schedule("c", 500);
+		// no advance for several rotations: everything due comes out in one call
+		wheel.advance(1000, expired::add);
+		assertEquals(3, expired.size());
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	void aPastDeadlineIsDueOnTheNextTick() {
+		wheel.advance(100, expired::add);
+		wheel.schedule("late", 50);
+		wheel.advance(105, expired::add);
+		assertTrue(expired.isEmpty());
+		wheel.advance(110, expired::add);
+		assertEquals(List.of("late"), expired);
+	}
+}
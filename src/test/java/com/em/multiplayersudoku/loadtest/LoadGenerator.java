@@ -0,0 +1,425 @@
+package com.em.multiplayersudoku.loadtest;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.messaging.converter.SimpleMessageConverter;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import com.em.multiplayersudoku.SudokuSolver;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.WebSocketContainer;
+
+/**
+ * Load generator for a running server. Creates {@code rooms} rooms over REST,
+ * seats {@code players} STOMP clients in each, starts the games and has every client play
+ * FILL/REMOVE moves on its own board at a fixed rate. Latency is measured from
+ * the scheduled send time of a move to the DELTA that echoes it back, so a
+ * server that falls behind shows up in the tail instead of slowing the senders.
+ * <p>
+ * Run with {@code ./mvnw -Ploadtest test-compile exec:java}; settings are system
+ * properties:
+ * <ul>
+ * <li>{@code loadtest.url} - server base URL (default http://localhost:8080)</li>
+ * <li>{@code loadtest.rooms} - rooms to create (default 50)</li>
+ * <li>{@code loadtest.rate} - moves per second per client (default 5)</li>
+ * <li>{@code loadtest.warmup} - seconds before samples are kept (default 10)</li>
+ * <li>{@code loadtest.duration} - measured seconds (default 30)</li>
+ * <li>{@code loadtest.difficulty} - room difficulty (default MEDIUM)</li>
+ * <li>{@code loadtest.players} - players per room, 2 to 16 (default 2)</li>
+ * <li>{@code loadtest.spectators} - spectator sessions per room, to check that
+ * viewers do not slow the players down (default 0)</li>
+ * </ul>
+ */
+public class LoadGenerator {
+	private static final int N = 9;
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final String baseUrl = System.getProperty("loadtest.url", "http://localhost:8080");
+	private final int roomCount = Integer.getInteger("loadtest.rooms", 50);
+	private final double rate = Double.parseDouble(System.getProperty("loadtest.rate", "5"));
+	private final int warmupSeconds = Integer.getInteger("loadtest.warmup", 10);
+	private final int durationSeconds = Integer.getInteger("loadtest.duration", 30);
+	private final String difficulty = System.getProperty("loadtest.difficulty", "MEDIUM");
+	private final int playersPerRoom = Integer.getInteger("loadtest.players", 2);
+	private final int spectatorsPerRoom = Integer.getInteger("loadtest.spectators", 0);
+
+	private final HttpClient httpClient = HttpClient.newHttpClient();
+	private final WebSocketStompClient stompClient;
+	private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
+			Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+	// samples are only kept while recording is on
+	private volatile boolean recording;
+	private final AtomicLong sent = new AtomicLong();
+	private final AtomicLong acknowledged = new AtomicLong();
+	private final AtomicLong spectatorFrames = new AtomicLong();
+
+	public LoadGenerator() {
+		// JSON snapshots are larger than the container's 8 KB default frame buffer
+		WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+		container.setDefaultMaxTextMessageBufferSize(1024 * 1024);
+		stompClient = new WebSocketStompClient(new StandardWebSocketClient(container));
+		stompClient.setMessageConverter(new SimpleMessageConverter()); // raw bytes both ways
+		stompClient.setInboundMessageSizeLimit(1024 * 1024);
+	}
+
+	public static void main(String[] args) throws Exception {
+		new LoadGenerator().run();
+	}
+
+	private void run() throws Exception {
+		System.out.printf("Seating %d rooms (%d clients) on %s%n", roomCount, roomCount * playersPerRoom, baseUrl);
+		List<Client> clients = new ArrayList<>();
+		List<StompSession> spectators = new ArrayList<>();
+		for (int i = 0; i < roomCount; i++) {
+			String code = createRoom();
+			List<Client> room = new ArrayList<>();
+			Set<String> seated = new HashSet<>();
+			for (int j = 0; j < playersPerRoom; j++) {
+				Client client = new Client(code);
+				client.join(j + 1, new HashSet<>(seated));
+				seated.add(client.sessionId);
+				room.add(client);
+			}
+			room.get(0).startGame();
+			for (Client client : room)
+				client.awaitBoard();
+			clients.addAll(room);
+			for (int j = 0; j < spectatorsPerRoom; j++)
+				spectators.add(spectate(code));
+		}
+
+		long periodNanos = (long) (1_000_000_000L / rate);
+		for (Client client : clients) {
+			// spread first moves over one period so clients do not send in lockstep
+			long offset = (long) (Math.random() * periodNanos);
+			client.begin(System.nanoTime() + offset, periodNanos);
+			scheduler.scheduleAtFixedRate(client::sendNext, offset, periodNanos, TimeUnit.NANOSECONDS);
+		}
+		System.out.printf("Warming up for %ds at %.1f moves/s per client%n", warmupSeconds, rate);
+		Thread.sleep(warmupSeconds * 1000L);
+
+		sent.set(0);
+		acknowledged.set(0);
+		spectatorFrames.set(0);
+		recording = true;
+		long started = System.nanoTime();
+		Thread.sleep(durationSeconds * 1000L);
+		recording = false;
+		double elapsed = (System.nanoTime() - started) / 1e9;
+
+		scheduler.shutdownNow();
+		long lost = 0;
+		List<long[]> samples = new ArrayList<>();
+		for (Client client : clients) {
+			samples.add(client.samples());
+			lost += client.pending.size();
+			client.disconnect();
+		}
+		for (StompSession spectator : spectators) {
+			if (spectator.isConnected())
+				spectator.disconnect();
+		}
+		report(merge(samples), elapsed, lost);
+	}
+
+	// Watches a room; only counts the frames it gets
+	private StompSession spectate(String code) throws Exception {
+		String url = baseUrl.replaceFirst("^http", "ws") + "/ws/websocket";
+		StompSession session = stompClient.connectAsync(url, new StompSessionHandlerAdapter() {
+		}).get(10, TimeUnit.SECONDS);
+		session.subscribe("/topic/room/" + code + "/spectate", new StompFrameHandler() {
+			@Override
+			public Type getPayloadType(StompHeaders headers) {
+				return byte[].class;
+			}
+
+			@Override
+			public void handleFrame(StompHeaders headers, Object payload) {
+				spectatorFrames.incrementAndGet();
+			}
+		});
+		return session;
+	}
+
+	private String createRoom() throws Exception {
+		String body = "{\"difficulty\":\"" + difficulty + "\",\"maxPlayers\":" + playersPerRoom + "}";
+		HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/room"))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.build();
+		HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() != 200)
+			throw new IllegalStateException("POST /api/room returned " + response.statusCode());
+		return objectMapper.readTree(response.body()).get("roomCode").asText();
+	}
+
+	private void report(long[] latencies, double elapsed, long lost) {
+		System.out.println();
+		System.out.printf("rooms=%d clients=%d measured=%.1fs%n", roomCount, roomCount * playersPerRoom, elapsed);
+		System.out.printf("moves sent:      %d (%.0f/s)%n", sent.get(), sent.get() / elapsed);
+		System.out.printf("deltas received: %d (%.0f/s)%n", acknowledged.get(), acknowledged.get() / elapsed);
+		System.out.printf("unanswered:      %d%n", lost);
+		if (spectatorsPerRoom > 0)
+			System.out.printf("spectator frames: %d (%.0f/s across %d spectators)%n", spectatorFrames.get(),
+					spectatorFrames.get() / elapsed, roomCount * spectatorsPerRoom);
+		if (latencies.length == 0) {
+			System.out.println("no latency samples");
+			return;
+		}
+		System.out.printf("latency ms: p50=%.2f p99=%.2f p999=%.2f max=%.2f%n",
+				percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+				latencies[latencies.length - 1] / 1e6);
+	}
+
+	private static long[] merge(List<long[]> parts) {
+		int total = 0;
+		for (long[] part : parts)
+			total += part.length;
+		long[] all = new long[total];
+		int at = 0;
+		for (long[] part : parts) {
+			System.arraycopy(part, 0, all, at, part.length);
+			at += part.length;
+		}
+		Arrays.sort(all);
+		return all;
+	}
+
+	private static double percentile(long[] sorted, double p) {
+		int index = (int) Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+	}
+
+	/**
+	 * One simulated player. Learns its session id from the snapshot that answers
+	 * its JOIN, then walks the empty cells of its board, filling each with the
+	 * solution and clearing it again on the next pass. The last empty cell is
+	 * never filled so the board never completes and the game keeps running.
+	 */
+	private class Client extends StompSessionHandlerAdapter implements StompFrameHandler {
+		private final String code;
+		private StompSession session;
+		private volatile String sessionId;
+		private volatile int expectedPlayers;
+		private volatile Set<String> otherSessionIds;
+		private volatile boolean closing;
+		private final CompletableFuture<String> joined = new CompletableFuture<>();
+		private final CompletableFuture<int[][]> board = new CompletableFuture<>();
+
+		private int[][] solution;
+		private int[] emptyCells;
+		private boolean[] filled;
+		private int step;
+		private long firstSend;
+		private long period;
+		private long ticks;
+
+		// cell index -> scheduled send time of the move waiting for its delta
+		private final Map<Integer, Long> pending = new ConcurrentHashMap<>();
+		private long[] latencies = new long[1024];
+		private int latencyCount;
+
+		Client(String code) {
+			this.code = code;
+		}
+
+		void join(int players, Set<String> others) throws Exception {
+			this.expectedPlayers = players;
+			this.otherSessionIds = others;
+			String url = baseUrl.replaceFirst("^http", "ws") + "/ws/websocket";
+			session = stompClient.connectAsync(url, this).get(10, TimeUnit.SECONDS);
+			session.subscribe("/topic/room/" + code, this);
+			// retry in case the JOIN overtakes the subscription on the server
+			for (int attempt = 0; attempt < 5 && !joined.isDone(); attempt++) {
+				send("{\"type\":\"JOIN\"}");
+				try {
+					sessionId = joined.get(2, TimeUnit.SECONDS);
+				} catch (TimeoutException e) {
+					// try again
+				}
+			}
+			if (sessionId == null)
+				throw new IllegalStateException("No snapshot for JOIN in room " + code);
+		}
+
+		void startGame() {
+			StompHeaders headers = new StompHeaders();
+			headers.setDestination("/app/room/" + code + "/start");
+			session.send(headers, new byte[0]);
+		}
+
+		void awaitBoard() throws Exception {
+			int[][] givens = board.get(10, TimeUnit.SECONDS);
+			SudokuSolver solver = new SudokuSolver();
+			if (!solver.load(givens) || !solver.solve(null))
+				throw new IllegalStateException("Unsolvable board in room " + code);
+			solution = new int[N][N];
+			solver.copyTo(solution);
+			int count = 0;
+			int[] cells = new int[N * N];
+			for (int i = 0; i < N * N; i++) {
+				if (givens[i / N][i % N] == 0)
+					cells[count++] = i;
+			}
+			emptyCells = Arrays.copyOf(cells, Math.max(1, count - 1));
+			filled = new boolean[emptyCells.length];
+		}
+
+		void begin(long firstSend, long period) {
+			this.firstSend = firstSend;
+			this.period = period;
+		}
+
+		// scheduler thread
+		void sendNext() {
+			long scheduled = firstSend + (ticks++) * period;
+			int slot = step++ % emptyCells.length;
+			int cell = emptyCells[slot];
+			if (pending.putIfAbsent(cell, scheduled) != null)
+				return; // previous move on this cell still in flight
+			int row = cell / N;
+			int col = cell % N;
+			if (filled[slot]) {
+				send("{\"type\":\"REMOVE\",\"row\":" + row + ",\"col\":" + col + ",\"sessionId\":\"" + sessionId
+						+ "\"}");
+			} else {
+				send("{\"type\":\"FILL\",\"row\":" + row + ",\"col\":" + col + ",\"value\":"
+						+ solution[row][col] + "}");
+			}
+			filled[slot] = !filled[slot];
+			if (recording)
+				sent.incrementAndGet();
+		}
+
+		private void send(String json) {
+			StompHeaders headers = new StompHeaders();
+			headers.setDestination("/app/room/" + code + "/action");
+			headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+			session.send(headers, json.getBytes(StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public Type getPayloadType(StompHeaders headers) {
+			return byte[].class;
+		}
+
+		@Override
+		public void handleFrame(StompHeaders headers, Object payload) {
+			long received = System.nanoTime();
+			if (!(payload instanceof byte[])) {
+				// ERROR frames without a body also arrive here
+				if (headers.getFirst("message") != null && !closing)
+					System.err.println("STOMP ERROR in room " + code + ": " + headers.getFirst("message"));
+				return;
+			}
+			try {
+				JsonNode message = objectMapper.readTree((byte[]) payload);
+				if ("DELTA".equals(message.path("type").asText())) {
+					onDelta(message, received);
+				} else if (message.has("filledCounts")) {
+					onSnapshot(message);
+				}
+			} catch (IOException e) {
+				System.err.println("Unreadable frame in room " + code + ": " + e.getMessage());
+			}
+		}
+
+		private void onSnapshot(JsonNode snapshot) {
+			JsonNode filledCounts = snapshot.get("filledCounts");
+			if (!joined.isDone() && filledCounts.size() == expectedPlayers) {
+				for (Iterator<String> it = filledCounts.fieldNames(); it.hasNext();) {
+					String id = it.next();
+					if (!otherSessionIds.contains(id)) {
+						joined.complete(id);
+						break;
+					}
+				}
+			}
+			String id = sessionId;
+			JsonNode own = (id != null) ? snapshot.path("boards").path(id) : null;
+			if (own != null && own.isArray() && !board.isDone()) {
+				int[][] givens = new int[N][N];
+				for (int row = 0; row < N; row++) {
+					for (int col = 0; col < N; col++) {
+						JsonNode cell = own.get(row).get(col);
+						if ("GIVEN".equals(cell.path("status").asText()))
+							givens[row][col] = cell.path("value").asInt();
+					}
+				}
+				board.complete(givens);
+			}
+		}
+
+		private void onDelta(JsonNode delta, long received) {
+			for (JsonNode change : delta.path("cells")) {
+				if (!change.path("sessionId").asText().equals(sessionId))
+					continue;
+				Long scheduled = pending.remove(change.path("row").asInt() * N + change.path("col").asInt());
+				if (scheduled != null && recording) {
+					acknowledged.incrementAndGet();
+					record(received - scheduled);
+				}
+			}
+		}
+
+		private synchronized void record(long nanos) {
+			if (latencyCount == latencies.length)
+				latencies = Arrays.copyOf(latencies, latencyCount * 2);
+			latencies[latencyCount++] = Math.max(0, nanos);
+		}
+
+		synchronized long[] samples() {
+			return Arrays.copyOf(latencies, latencyCount);
+		}
+
+		void disconnect() {
+			closing = true;
+			if (session != null && session.isConnected())
+				session.disconnect();
+		}
+
+		@Override
+		public void handleException(StompSession session, StompCommand command,
+				StompHeaders headers, byte[] payload, Throwable exception) {
+			System.err.println("STOMP error in room " + code + ": " + exception.getMessage());
+		}
+
+		@Override
+		public void handleTransportError(StompSession session, Throwable exception) {
+			if (closing)
+				return;
+			System.err.println("Transport error in room " + code + ": " + exception.getMessage());
+		}
+	}
+}